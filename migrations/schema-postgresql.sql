@@ -99,7 +99,13 @@ CREATE TABLE "Shipments" (
     driver_id uuid REFERENCES "Driver"(driver_id) ON DELETE SET NULL,
     departure_time timestamp with time zone,
     arrival_time timestamp with time zone,
-    status text CHECK (status IN ('Pending', 'InTransit', 'Delivered', 'Cancelled'))
+    status text CHECK (status IN ('Pending', 'InTransit', 'Delivered', 'Cancelled')),
+    -- Maintained from "Orders" by the trg_orders_shipment_counts_* triggers
+    order_count integer NOT NULL DEFAULT 0,
+    pending_count integer NOT NULL DEFAULT 0,
+    in_transit_count integer NOT NULL DEFAULT 0,
+    delivered_count integer NOT NULL DEFAULT 0,
+    total_weight numeric(12,2) NOT NULL DEFAULT 0
 );
 
 -- ============================================
@@ -116,7 +122,10 @@ CREATE TABLE "Orders" (
     weight numeric(10,2),
     tracking_id text,
     actual_delivery_time timestamp with time zone,
-    pod bytea,
+    pod bytea, -- legacy; superseded by pod_ref
+    pod_ref text, -- SHA-256 of the proof of delivery in the POD blob store
+    pod_normalized_ref text, -- display-sized JPEG derived from pod_ref
+    pod_thumbnail_ref text, -- thumbnail JPEG derived from pod_ref
     status text CHECK (status IN ('Pending', 'Assigned', 'InTransit', 'Delivered', 'Cancelled'))
 );
 
@@ -125,7 +134,7 @@ CREATE TABLE "Orders" (
 -- ============================================
 CREATE INDEX idx_users_keycloak_id ON "Users"(keycloak_id);
 CREATE INDEX idx_users_name ON "Users"(name);
-CREATE INDEX idx_driver_user_id ON "Driver"(user_id);
+CREATE UNIQUE INDEX idx_driver_user_id ON "Driver"(user_id);
 CREATE INDEX idx_driver_carrier_id ON "Driver"(carrier_id);
 CREATE INDEX idx_orders_costumer_id ON "Orders"(costumer_id);
 CREATE INDEX idx_orders_carrier_id ON "Orders"(carrier_id);
@@ -135,6 +144,130 @@ CREATE INDEX idx_shipments_driver_id ON "Shipments"(driver_id);
 CREATE INDEX idx_shipments_status ON "Shipments"(status);
 CREATE INDEX idx_orders_status ON "Orders"(status);
 
+-- Keyset pagination of the order listing: (order_date, order_id) cursor,
+-- optionally filtered by status or carrier
+CREATE INDEX idx_orders_date_id ON "Orders"(order_date DESC, order_id DESC);
+CREATE INDEX idx_orders_status_date_id ON "Orders"(status, order_date DESC, order_id DESC);
+CREATE INDEX idx_orders_carrier_date_id ON "Orders"(carrier_id, order_date DESC, order_id DESC);
+
+-- Public tracking lookup by tracking ID
+CREATE UNIQUE INDEX idx_orders_tracking_id ON "Orders"(tracking_id);
+
+-- Proofs of delivery still waiting for derived images (re-queued by the order service)
+CREATE INDEX idx_orders_pod_unprocessed ON "Orders"(order_id)
+    WHERE pod_ref IS NOT NULL AND pod_normalized_ref IS NULL;
+
+-- Transactional outbox for order events (relayed to the notification service)
+CREATE TABLE "OrderOutbox" (
+    id BIGSERIAL PRIMARY KEY,
+    order_id uuid NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL DEFAULT '{}'::jsonb,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    delivered_at TIMESTAMP WITH TIME ZONE
+);
+CREATE INDEX idx_order_outbox_pending ON "OrderOutbox"(next_attempt_at, id) WHERE status = 'PENDING';
+
+-- Shipment order counters, kept in step with "Orders" per statement
+-- Adds the summed per-shipment deltas of one statement; skips shipments whose
+-- deltas cancel out (e.g. an update that only sets the POD)
+CREATE OR REPLACE FUNCTION shipments_add_order_counts(delta jsonb) RETURNS void AS $$
+    UPDATE "Shipments" s
+    SET order_count = s.order_count + d.n,
+        pending_count = s.pending_count + d.pending,
+        in_transit_count = s.in_transit_count + d.in_transit,
+        delivered_count = s.delivered_count + d.delivered,
+        total_weight = s.total_weight + d.weight
+    FROM (
+        -- Orders without a status contribute NULLs, hence the COALESCEs
+        SELECT shipment_id, SUM(n) AS n, COALESCE(SUM(pending), 0) AS pending,
+               COALESCE(SUM(in_transit), 0) AS in_transit, COALESCE(SUM(delivered), 0) AS delivered,
+               SUM(weight) AS weight
+        FROM jsonb_to_recordset(delta)
+            AS x(shipment_id uuid, n int, pending int, in_transit int, delivered int, weight numeric)
+        GROUP BY shipment_id
+        HAVING SUM(n) <> 0 OR SUM(pending) <> 0 OR SUM(in_transit) <> 0
+            OR SUM(delivered) <> 0 OR SUM(weight) <> 0
+    ) d
+    WHERE s.shipment_id = d.shipment_id;
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION shipments_apply_order_counts() RETURNS trigger AS $$
+DECLARE
+    delta jsonb;
+BEGIN
+    -- Transition tables only exist for the event that defines them
+    IF TG_OP = 'INSERT' THEN
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, 1 AS n, (status = 'Pending')::int AS pending,
+                   (status = 'InTransit')::int AS in_transit, (status = 'Delivered')::int AS delivered,
+                   COALESCE(weight, 0) AS weight
+            FROM new_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, -1 AS n, -(status = 'Pending')::int AS pending,
+                   -(status = 'InTransit')::int AS in_transit, -(status = 'Delivered')::int AS delivered,
+                   -COALESCE(weight, 0) AS weight
+            FROM old_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    ELSE
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, -1 AS n, -(status = 'Pending')::int AS pending,
+                   -(status = 'InTransit')::int AS in_transit, -(status = 'Delivered')::int AS delivered,
+                   -COALESCE(weight, 0) AS weight
+            FROM old_orders WHERE shipment_id IS NOT NULL
+            UNION ALL
+            SELECT shipment_id, 1, (status = 'Pending')::int, (status = 'InTransit')::int,
+                   (status = 'Delivered')::int, COALESCE(weight, 0)
+            FROM new_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    END IF;
+
+    IF delta IS NOT NULL THEN
+        PERFORM shipments_add_order_counts(delta);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_orders_shipment_counts_insert
+    AFTER INSERT ON "Orders"
+    REFERENCING NEW TABLE AS new_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+CREATE TRIGGER trg_orders_shipment_counts_update
+    AFTER UPDATE ON "Orders"
+    REFERENCING OLD TABLE AS old_orders NEW TABLE AS new_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+CREATE TRIGGER trg_orders_shipment_counts_delete
+    AFTER DELETE ON "Orders"
+    REFERENCING OLD TABLE AS old_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+-- Signal role membership removals to the order service's RoleDirectory
+-- (the user service signals the rows it adds)
+CREATE OR REPLACE FUNCTION notify_role_membership_changed() RETURNS trigger AS $$
+BEGIN
+    -- Delivered on commit; repeats within one transaction are folded into one
+    PERFORM pg_notify('role_membership_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_warehouse_staff_membership_changed
+    AFTER UPDATE OR DELETE OR TRUNCATE ON "WarehouseStaff"
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_role_membership_changed();
+
+CREATE TRIGGER trg_csr_membership_changed
+    AFTER UPDATE OR DELETE OR TRUNCATE ON "Csr"
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_role_membership_changed();
+
 COMMENT ON TABLE "Users" IS 'Main user table synced from Keycloak';
 COMMENT ON TABLE "Carrier" IS 'Shipping carriers/companies';
 COMMENT ON TABLE "Driver" IS 'Drivers assigned to carriers';
@@ -6,7 +6,7 @@ import {
   getWelcomeMessage,
   extractTrackingId,
 } from "../utils/chatbotKnowledgeBase";
-import { fetchOrderByTrackingId, formatOrderDetails } from "../utils/orderApi";
+import { fetchOrderByTrackingId, fetchOrderCounts, formatOrderDetails } from "../utils/orderApi";
 import { API_ENDPOINTS } from "../config/api.config";
 import "./ChatAssistant.css";
 
@@ -210,25 +210,13 @@ const ChatAssistant: React.FC<ChatAssistantProps> = ({
       ) {
         setIsTyping(true);
         try {
-          const response = await fetch(API_ENDPOINTS.ORDERS, {
-            headers: {
-              Authorization: `Bearer ${authToken}`,
-              "Content-Type": "application/json",
-            },
-          });
+          const counts = await fetchOrderCounts(authToken ?? "").catch(() => null);
 
-          if (response.ok) {
-            const orders = await response.json();
-            const totalOrders = orders.length;
-            const pendingOrders = orders.filter(
-              (order: { status: string }) => order.status === "Pending"
-            ).length;
-            const inTransitOrders = orders.filter(
-              (order: { status: string }) => order.status === "InTransit"
-            ).length;
-            const deliveredOrders = orders.filter(
-              (order: { status: string }) => order.status === "Delivered"
-            ).length;
+          if (counts) {
+            const totalOrders = Object.values(counts).reduce((sum, count) => sum + count, 0);
+            const pendingOrders = counts.Pending ?? 0;
+            const inTransitOrders = counts.InTransit ?? 0;
+            const deliveredOrders = counts.Delivered ?? 0;
 
             setIsTyping(false);
 
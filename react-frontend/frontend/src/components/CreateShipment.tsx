@@ -2,6 +2,7 @@ import { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import { useKeycloak } from "../context/keycloakHooks";
 import { API_ENDPOINTS } from "../config/api.config";
+import { fetchOrdersByStatus } from "../utils/orderApi";
 import Header from "./Header";
 import Roles from "./UtilsRoles";
 import Paths from "./UtilsPaths";
@@ -65,19 +66,9 @@ function CreateShipment() {
       setError(null);
       
       try {
-        // Fetch pending orders
-        const ordersResp = await fetch(API_ENDPOINTS.ORDERS, {
-          headers: {
-            'Authorization': `Bearer ${keycloak.token}`,
-            'Content-Type': 'application/json'
-          }
-        });
-        if (!ordersResp.ok) throw new Error(`Orders fetch failed: ${ordersResp.status}`);
-        const ordersData = await ordersResp.json();
-        
-        // Filter only Pending orders without shipment assignment
-        const pendingOrders = (Array.isArray(ordersData) ? ordersData : [])
-          .filter((order: Order) => order.status === "Pending" && !order.shipmentId);
+        // Fetch pending orders, keeping only those without shipment assignment
+        const pendingOrders = (await fetchOrdersByStatus<Order>(keycloak.token, "Pending"))
+          .filter((order) => !order.shipmentId);
         
         // Fetch carriers
         const carriersResp = await fetch(API_ENDPOINTS.CARRIERS, {
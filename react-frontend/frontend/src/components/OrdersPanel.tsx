@@ -3,6 +3,7 @@ import { useNavigate } from "react-router-dom";
 import { useKeycloak } from "../context/keycloakHooks";
 import { useFeatureFlag } from "../context/featureFlagsHooks";
 import { API_ENDPOINTS } from "../config/api.config";
+import { fetchOrderCounts, fetchOrderPage } from "../utils/orderApi";
 
 interface Order {
   orderId: string;
@@ -67,7 +68,11 @@ export default function OrdersPanel() {
   const [loading, setLoading] = useState<boolean>(true);
   const [error, setError] = useState<string | null>(null);
   const [filter, setFilter] = useState<string>("All");
+  const [counts, setCounts] = useState<Record<string, number>>({});
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState<boolean>(false);
 
+  // First page of the selected status plus the per-status counts; further pages on demand
   const loadOrders = async () => {
     if (!keycloak || !keycloak.token || !keycloak.authenticated) {
       console.log("[OrdersPanel] Waiting for Keycloak...");
@@ -79,15 +84,10 @@ export default function OrdersPanel() {
     setLoading(true);
     setError(null);
     try {
-      // Fetch orders with Authorization header
-      const ordersResp = await fetch(API_ENDPOINTS.ORDERS, {
-        headers: {
-          'Authorization': `Bearer ${keycloak.token}`,
-          'Content-Type': 'application/json'
-        }
-      });
-      if (!ordersResp.ok) throw new Error(`Orders fetch failed: ${ordersResp.status}`);
-      const ordersData = await ordersResp.json();
+      const [page, countsData] = await Promise.all([
+        fetchOrderPage<Order>(keycloak.token, { status: filter === "All" ? undefined : filter }),
+        fetchOrderCounts(keycloak.token),
+      ]);
       
       // Fetch carriers with Authorization header
       const carriersResp = await fetch(API_ENDPOINTS.CARRIERS, {
@@ -99,7 +99,9 @@ export default function OrdersPanel() {
       if (!carriersResp.ok) throw new Error(`Carriers fetch failed: ${carriersResp.status}`);
       const carriersData = await carriersResp.json();
       
-      setOrders(Array.isArray(ordersData) ? ordersData : []);
+      setOrders(page.orders);
+      setNextCursor(page.nextCursor);
+      setCounts(countsData);
       setCarriers(Array.isArray(carriersData) ? carriersData : []);
     } catch (e) {
       console.error("Data fetch failed", e);
@@ -112,7 +114,25 @@ export default function OrdersPanel() {
   useEffect(() => {
     loadOrders();
     // eslint-disable-next-line react-hooks/exhaustive-deps
-  }, [keycloak]);
+  }, [keycloak, filter]);
+
+  const loadMore = async () => {
+    if (!keycloak?.token || !nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchOrderPage<Order>(keycloak.token, {
+        status: filter === "All" ? undefined : filter,
+        cursor: nextCursor,
+      });
+      setOrders((current) => [...current, ...page.orders]);
+      setNextCursor(page.nextCursor);
+    } catch (e) {
+      console.error("Orders page fetch failed", e);
+      setError(String(e));
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const getCarrierName = (carrierId: string | null): string => {
     if (!carrierId) return "Sem atribuição";
@@ -236,7 +256,15 @@ export default function OrdersPanel() {
     );
   }
 
-  if (orders.length === 0) {
+  const statusCounts = {
+    All: Object.values(counts).reduce((sum, count) => sum + count, 0),
+    Pending: counts.Pending ?? 0,
+    InTransit: counts.InTransit ?? 0,
+    Delivered: counts.Delivered ?? 0,
+    Failed: counts.Failed ?? 0,
+  };
+
+  if (statusCounts.All === 0) {
     return (
       <div className="alert alert-info" role="alert">
         <i className="bi bi-info-circle-fill me-2"></i>
@@ -245,17 +273,8 @@ export default function OrdersPanel() {
     );
   }
 
-  const filteredOrders = filter === "All" 
-    ? orders 
-    : orders.filter((o) => o.status === filter);
-
-  const statusCounts = {
-    All: orders.length,
-    Pending: orders.filter((o) => o.status === "Pending").length,
-    InTransit: orders.filter((o) => o.status === "InTransit").length,
-    Delivered: orders.filter((o) => o.status === "Delivered").length,
-    Failed: orders.filter((o) => o.status === "Failed").length,
-  };
+  // Filtered by the server already
+  const filteredOrders = orders;
 
   return (
     <div className="card shadow-sm">
@@ -416,6 +435,14 @@ export default function OrdersPanel() {
             Nenhum pedido com status "{filter}".
           </div>
         )}
+
+        {nextCursor && (
+          <div className="text-center">
+            <button className="btn btn-outline-primary" onClick={loadMore} disabled={loadingMore}>
+              {loadingMore ? "A carregar..." : "Carregar mais pedidos"}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
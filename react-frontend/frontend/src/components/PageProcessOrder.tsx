@@ -82,30 +82,24 @@ export default function PageProcessOrder() {
       try {
         setLoading(true);
         
-        // Fetch all orders (warehouse needs to see all orders to process them)
-        console.log("Fetching orders with token:", keycloak.token.substring(0, 20) + "...");
+        // Fetch just the order being processed
         console.log("Looking for orderId:", orderId);
-        const orderResp = await fetch(`${API_ENDPOINTS.ORDERS}`, {
+        const orderResp = await fetch(`${API_ENDPOINTS.ORDERS}/${orderId}`, {
           headers: {
             'Authorization': `Bearer ${keycloak.token}`,
             'Content-Type': 'application/json'
           }
         });
-        if (!orderResp.ok) {
-          console.error("Failed to fetch orders, status:", orderResp.status);
-          throw new Error("Failed to fetch orders");
-        }
-        const orders: Order[] = await orderResp.json();
-        console.log("Total orders fetched:", orders.length);
-        console.log("Order IDs:", orders.map(o => o.orderId));
-        const foundOrder = orders.find((o) => o.orderId === orderId);
-        
-        if (!foundOrder) {
+        if (orderResp.status === 404 || orderResp.status === 400) {
           console.error("Order not found! Looking for:", orderId);
-          console.error("Available orders:", orders);
           setError("Pedido não encontrado");
           return;
         }
+        if (!orderResp.ok) {
+          console.error("Failed to fetch order, status:", orderResp.status);
+          throw new Error("Failed to fetch order");
+        }
+        const foundOrder: Order = await orderResp.json();
         
         console.log("Order found:", foundOrder);
         
@@ -1,4 +1,4 @@
-import { useState } from "react";
+import { useEffect, useState } from "react";
 import Header from "./Header";
 import Roles from "./UtilsRoles";
 import Paths from "./UtilsPaths";
@@ -21,6 +21,7 @@ interface TrackingResult {
   shipmentId: string | null;
   actualDeliveryTime: string | null;
   proofOfDelivery: string | null;
+  proofOfDeliveryUrl: string | null;
   carrierName: string | null;
   carrierId: string | null;
   errorMessage: string | null;
@@ -33,6 +34,39 @@ function TrackingPortal() {
   const [trackingResult, setTrackingResult] = useState<TrackingResult | null>(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [podFile, setPodFile] = useState<{ url: string; type: string } | null>(null);
+
+  // Only a ready thumbnail is inlined; otherwise (processing, PDFs, legacy proofs) fetch the file
+  useEffect(() => {
+    const podUrl = trackingResult?.proofOfDeliveryUrl;
+    if (!podUrl || trackingResult?.proofOfDelivery) {
+      setPodFile(null);
+      return;
+    }
+
+    let objectUrl: string | null = null;
+    let cancelled = false;
+    fetch(API_ENDPOINTS.ORDER_SERVICE_PATH(podUrl), {
+      headers: { Authorization: `Bearer ${keycloak?.token}` },
+    })
+      .then((response) => {
+        if (!response.ok) {
+          throw new Error(`Erro ${response.status}`);
+        }
+        return response.blob();
+      })
+      .then((blob) => {
+        if (cancelled) return;
+        objectUrl = URL.createObjectURL(blob);
+        setPodFile({ url: objectUrl, type: blob.type });
+      })
+      .catch((err) => console.error("Proof of delivery error:", err));
+
+    return () => {
+      cancelled = true;
+      if (objectUrl) URL.revokeObjectURL(objectUrl);
+    };
+  }, [trackingResult, keycloak]);
 
   const handleBackToRole = () => {
     if (primaryRole) {
@@ -326,31 +360,46 @@ function TrackingPortal() {
               )}
 
               {/* Proof of Delivery */}
-              {trackingResult.proofOfDelivery && (
+              {(trackingResult.proofOfDelivery || podFile) && (
                 <div className="pod-section mt-4">
                   <h5 className="mb-3">
                     <i className="bi bi-file-earmark-check me-2"></i>Comprovativo de Entrega
                   </h5>
                   <div className="alert alert-success">
                     <div className="d-flex flex-column align-items-center">
-                      <img 
-                        src={`data:image/png;base64,${trackingResult.proofOfDelivery}`}
-                        alt="Comprovativo de Entrega"
-                        className="img-fluid rounded border"
-                        style={{ maxWidth: '400px', maxHeight: '300px' }}
-                        onError={(e) => {
-                          // If image fails to load, show as text (fallback)
-                          e.currentTarget.style.display = 'none';
-                          const nextElement = e.currentTarget.nextElementSibling as HTMLElement;
-                          if (nextElement) nextElement.style.display = 'block';
-                        }}
-                      />
-                      <p 
-                        className="mb-0 mt-2" 
-                        style={{ display: 'none', fontSize: '0.8em', color: '#666' }}
-                      >
-                        {trackingResult.proofOfDelivery.substring(0, 100)}...
-                      </p>
+                      {trackingResult.proofOfDelivery ? (
+                        <>
+                          <img 
+                            src={`data:image/png;base64,${trackingResult.proofOfDelivery}`}
+                            alt="Comprovativo de Entrega"
+                            className="img-fluid rounded border"
+                            style={{ maxWidth: '400px', maxHeight: '300px' }}
+                            onError={(e) => {
+                              // If image fails to load, show as text (fallback)
+                              e.currentTarget.style.display = 'none';
+                              const nextElement = e.currentTarget.nextElementSibling as HTMLElement;
+                              if (nextElement) nextElement.style.display = 'block';
+                            }}
+                          />
+                          <p 
+                            className="mb-0 mt-2" 
+                            style={{ display: 'none', fontSize: '0.8em', color: '#666' }}
+                          >
+                            {trackingResult.proofOfDelivery.substring(0, 100)}...
+                          </p>
+                        </>
+                      ) : podFile && podFile.type.startsWith("image/") ? (
+                        <img
+                          src={podFile.url}
+                          alt="Comprovativo de Entrega"
+                          className="img-fluid rounded border"
+                          style={{ maxWidth: '400px', maxHeight: '300px' }}
+                        />
+                      ) : podFile && (
+                        <a href={podFile.url} target="_blank" rel="noopener noreferrer" className="btn btn-outline-success">
+                          <i className="bi bi-file-earmark-pdf me-1"></i>Abrir comprovativo
+                        </a>
+                      )}
                       <small className="text-muted mt-2">
                         <i className="bi bi-info-circle me-1"></i>
                         Comprovativo registado pelo motorista
@@ -5,7 +5,7 @@ import OrdersPanel from "./OrdersPanel";
 import ChatAssistant from "./ChatAssistant";
 import { useKeycloak } from "../context/keycloakHooks";
 import { useState, useEffect } from "react";
-import { API_ENDPOINTS } from "../config/api.config";
+import { fetchOrderCounts } from "../utils/orderApi";
 
 const role: string = Roles.ROLE_WAREHOUSE;
 const href: string = Paths.PATH_WAREHOUSE;
@@ -22,20 +22,8 @@ function Warehouse() {
       if (!keycloak?.token) return;
 
       try {
-        const response = await fetch(API_ENDPOINTS.ORDERS, {
-          headers: {
-            Authorization: `Bearer ${keycloak.token}`,
-            "Content-Type": "application/json",
-          },
-        });
-
-        if (response.ok) {
-          const orders = await response.json();
-          const pending = orders.filter(
-            (order: { status: string }) => order.status === "Pending"
-          ).length;
-          setPendingCount(pending);
-        }
+        const counts = await fetchOrderCounts(keycloak.token);
+        setPendingCount(counts.Pending ?? 0);
       } catch (error) {
         console.error("Error fetching pending orders count:", error);
       }
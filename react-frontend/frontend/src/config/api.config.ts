@@ -48,6 +48,8 @@ export const API_ENDPOINTS = {
   CREATE_SHIPMENT: isDevelopment ? `${ORDER_SERVICE_URL}/api/shipments/create` : '/api/shipments/create',
   PACKING_SLIP: (orderId: string) => isDevelopment ? `${ORDER_SERVICE_URL}/api/orders/${orderId}/packing-slip` : `/api/orders/${orderId}/packing-slip`,
   SHIPPING_LABEL: (orderId: string) => isDevelopment ? `${ORDER_SERVICE_URL}/api/orders/${orderId}/shipping-label` : `/api/orders/${orderId}/shipping-label`,
+  // Path returned by the order service itself (e.g. proofOfDeliveryUrl)
+  ORDER_SERVICE_PATH: (path: string) => isDevelopment ? `${ORDER_SERVICE_URL}${path}` : path,
   
   // Users API
   USERS: isDevelopment ? `${USER_SERVICE_URL}/api/users` : '/api/users',
@@ -2,6 +2,69 @@
  * Order API utilities for fetching order details
  */
 
+import { API_ENDPOINTS } from "../config/api.config";
+
+export const ORDER_PAGE_SIZE = 100;
+
+export interface OrderPage<T> {
+  orders: T[];
+  /** Cursor for the next page, null on the last one */
+  nextCursor: string | null;
+}
+
+/**
+ * Fetch one page of the order list (newest first); the next cursor comes from X-Next-Cursor
+ */
+export async function fetchOrderPage<T>(
+  token: string,
+  options: { status?: string; cursor?: string | null; limit?: number } = {}
+): Promise<OrderPage<T>> {
+  const params = new URLSearchParams({ limit: String(options.limit ?? ORDER_PAGE_SIZE) });
+  if (options.status) params.set("status", options.status);
+  if (options.cursor) params.set("cursor", options.cursor);
+
+  const response = await fetch(`${API_ENDPOINTS.ORDERS}?${params}`, {
+    headers: {
+      Authorization: `Bearer ${token}`,
+      "Content-Type": "application/json",
+    },
+  });
+  if (!response.ok) throw new Error(`Orders fetch failed: ${response.status}`);
+  const orders = await response.json();
+  return {
+    orders: Array.isArray(orders) ? orders : [],
+    nextCursor: response.headers.get("X-Next-Cursor"),
+  };
+}
+
+/**
+ * Fetch every order with a given status, page by page
+ */
+export async function fetchOrdersByStatus<T>(token: string, status: string): Promise<T[]> {
+  const orders: T[] = [];
+  let cursor: string | null = null;
+  do {
+    const page: OrderPage<T> = await fetchOrderPage<T>(token, { status, cursor, limit: 500 });
+    orders.push(...page.orders);
+    cursor = page.nextCursor;
+  } while (cursor);
+  return orders;
+}
+
+/**
+ * Number of orders per status (statuses without orders are absent)
+ */
+export async function fetchOrderCounts(token: string): Promise<Record<string, number>> {
+  const response = await fetch(`${API_ENDPOINTS.ORDERS}/counts`, {
+    headers: {
+      Authorization: `Bearer ${token}`,
+      "Content-Type": "application/json",
+    },
+  });
+  if (!response.ok) throw new Error(`Order counts fetch failed: ${response.status}`);
+  return response.json();
+}
+
 export interface OrderDetails {
   id: string;
   tracking_id: string;
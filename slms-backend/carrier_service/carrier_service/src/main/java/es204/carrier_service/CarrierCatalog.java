@@ -0,0 +1,127 @@
+package es204.carrier_service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cached, pre-serialized carrier list behind GET /carriers.
+ *
+ * A background thread reloads "Carrier" every carriers.cache.refresh-ms, serializes
+ * it once and swaps in an immutable snapshot. The ETag is the SHA-256 of the JSON,
+ * so it is the same on every instance and only changes when the data does; the
+ * version number goes up with each change seen by this instance.
+ */
+@Component
+public class CarrierCatalog {
+
+    private static final String SELECT_CARRIERS = """
+        SELECT
+            carrier_id,
+            name,
+            avg_cost,
+            on_time_rate,
+            success_rate,
+            cost_history::text as cost_history,
+            successful_deliveries,
+            failed_deliveries,
+            delayed_deliveries,
+            total_deliveries
+        FROM "Carrier"
+        ORDER BY name, carrier_id
+        LIMIT 100
+        """;
+
+    /**
+     * One serialized view of the carrier table
+     */
+    public record Snapshot(long version, byte[] json, String etag) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+    private final long refreshMs;
+    private final Thread worker;
+    private volatile Snapshot snapshot;
+    private volatile boolean running = true;
+
+    public CarrierCatalog(JdbcTemplate jdbc, ObjectMapper objectMapper,
+                          @Value("${carriers.cache.refresh-ms:15000}") long refreshMs) {
+        this.jdbc = jdbc;
+        this.objectMapper = objectMapper;
+        this.refreshMs = refreshMs;
+
+        this.worker = new Thread(this::run, "carrier-catalog");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Reload and re-serialize the carrier list; keeps the old snapshot if nothing changed
+     */
+    public synchronized Snapshot refresh() {
+        List<Map<String, Object>> carriers = jdbc.queryForList(SELECT_CARRIERS);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(carriers);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize carriers", e);
+        }
+        String etag = "\"" + sha256(json) + "\"";
+
+        Snapshot current = snapshot;
+        if (current != null && current.etag().equals(etag)) {
+            return current;
+        }
+        Snapshot next = new Snapshot(current != null ? current.version() + 1 : 1, json, etag);
+        snapshot = next;
+        return next;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.err.println("=== Carrier catalog refresh failed: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(refreshMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(2000);
+    }
+}
@@ -1,10 +1,15 @@
 package es204.carrier_service;
 
-import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -12,30 +17,40 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/carriers")
 public class CarrierController {
 
+    private static final String VERSION_HEADER = "X-Carriers-Version";
+
     private final JdbcTemplate jdbc;
+    private final CarrierCatalog carrierCatalog;
 
-    public CarrierController(JdbcTemplate jdbc) {
+    public CarrierController(JdbcTemplate jdbc, CarrierCatalog carrierCatalog) {
         this.jdbc = jdbc;
+        this.carrierCatalog = carrierCatalog;
     }
 
+    /**
+     * All carriers, served from the pre-serialized CarrierCatalog snapshot.
+     * Clients that send the last ETag back in If-None-Match get a 304 while nothing changed.
+     */
     @GetMapping
-    public List<Map<String, Object>> all() {
-        String sql = """
-            SELECT 
-                carrier_id,
-                name,
-                avg_cost,
-                on_time_rate,
-                success_rate,
-                cost_history::text as cost_history,
-                successful_deliveries,
-                failed_deliveries,
-                delayed_deliveries,
-                total_deliveries
-            FROM "Carrier" 
-            LIMIT 100
-            """;
-        return jdbc.queryForList(sql);
+    public ResponseEntity<byte[]> all(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        CarrierCatalog.Snapshot snapshot = carrierCatalog.current();
+        CacheControl cacheControl = CacheControl.noCache();
+
+        if (etagMatches(ifNoneMatch, snapshot.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(cacheControl)
+                    .header(VERSION_HEADER, Long.toString(snapshot.version()))
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .header(VERSION_HEADER, Long.toString(snapshot.version()))
+                .body(snapshot.json());
     }
 
     @GetMapping("/health")
@@ -48,4 +63,17 @@ public class CarrierController {
         }
     }
 
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -0,0 +1,95 @@
+package es204.carrier_service.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * JwtDecoder that remembers tokens it has already verified.
+ *
+ * Clients send the same bearer token on every request until it expires, and each
+ * decode re-parses it and re-verifies its RSA signature. A token that decoded
+ * successfully is kept, keyed by its SHA-256, until its exp claim; a hit returns the
+ * verified Jwt without touching the delegate. Tokens that fail validation and tokens
+ * without exp are never cached. Bounded LRU of security.jwt.cache.max-entries tokens.
+ * Hits and misses are exported as the security.jwt.cache counter.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final int maxEntries;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Jwt> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, int maxEntries) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("security.jwt.cache", "result", "hit");
+        this.misses = meterRegistry.counter("security.jwt.cache", "result", "miss");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = sha256(token);
+        Jwt cached = get(key, token);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        Jwt jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null) {
+            put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private synchronized Jwt get(String key, String token) {
+        Jwt jwt = entries.get(key);
+        if (jwt == null) {
+            return null;
+        }
+        // Expired tokens go back to the delegate, which rejects them
+        if (!jwt.getExpiresAt().isAfter(Instant.now()) || !jwt.getTokenValue().equals(token)) {
+            entries.remove(key);
+            return null;
+        }
+        return jwt;
+    }
+
+    private synchronized void put(String key, Jwt jwt) {
+        entries.put(key, jwt);
+
+        Iterator<Map.Entry<String, Jwt>> lru = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+        }
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- ============================================
+-- Migration 008: Keyset pagination indexes for Orders
+-- ============================================
+-- GET /api/orders pages with an (order_date, order_id) cursor instead of
+-- returning the whole table. These indexes keep every page an index range scan,
+-- with or without the status / carrier filters.
+
+CREATE INDEX IF NOT EXISTS idx_orders_date_id
+    ON "Orders"(order_date DESC, order_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_orders_status_date_id
+    ON "Orders"(status, order_date DESC, order_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_orders_carrier_date_id
+    ON "Orders"(carrier_id, order_date DESC, order_id DESC);
@@ -0,0 +1,12 @@
+-- ============================================
+-- Migration 009: Proof of delivery in the blob store
+-- ============================================
+-- Proof-of-delivery images move out of the "Orders".pod bytea column into the
+-- order service's content-addressed blob store (POD_STORAGE_DIR). The row only
+-- keeps the SHA-256 reference.
+--
+-- Existing bytea values are moved by starting the order service once with
+-- POD_MIGRATION_ENABLED=true. The pod column is kept until that has run in
+-- every environment and will be dropped in a later migration.
+
+ALTER TABLE "Orders" ADD COLUMN IF NOT EXISTS pod_ref text;
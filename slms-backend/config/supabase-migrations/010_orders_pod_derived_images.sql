@@ -0,0 +1,9 @@
+-- ============================================
+-- Migration 010: Derived proof-of-delivery images
+-- ============================================
+-- The order service re-encodes each uploaded POD photo in the background into a
+-- display-sized JPEG and a thumbnail. Tracking responses inline the thumbnail
+-- instead of the full-resolution original, which stays referenced by pod_ref.
+
+ALTER TABLE "Orders" ADD COLUMN IF NOT EXISTS pod_normalized_ref text;
+ALTER TABLE "Orders" ADD COLUMN IF NOT EXISTS pod_thumbnail_ref text;
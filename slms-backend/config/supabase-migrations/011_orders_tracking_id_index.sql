@@ -0,0 +1,11 @@
+-- ============================================
+-- Migration 011: Unique index on Orders.tracking_id
+-- ============================================
+-- GET /api/orders/track/{trackingId} looks orders up by tracking_id, which had
+-- no index. Tracking IDs are generated per order, so the index is unique; this
+-- fails if duplicates exist, which must then be cleaned up first:
+--   SELECT tracking_id, COUNT(*) FROM "Orders"
+--   WHERE tracking_id IS NOT NULL GROUP BY tracking_id HAVING COUNT(*) > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_orders_tracking_id
+    ON "Orders"(tracking_id);
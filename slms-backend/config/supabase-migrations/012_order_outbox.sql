@@ -0,0 +1,26 @@
+-- ============================================
+-- Migration 012: Transactional outbox for order events
+-- ============================================
+-- The order service writes one row here in the same transaction as the "Orders"
+-- change (create, update, delivery confirmation, anomaly report). A relay in the
+-- order service claims due rows with FOR UPDATE SKIP LOCKED, sends the resulting
+-- notifications to the notification service and records the outcome per event.
+-- order_id has no foreign key: the JPA insert of a new order is flushed after
+-- its event row, at commit.
+
+CREATE TABLE IF NOT EXISTS "OrderOutbox" (
+    id BIGSERIAL PRIMARY KEY,
+    order_id uuid NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL DEFAULT '{}'::jsonb,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    delivered_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Relay poll: due pending events in id order
+CREATE INDEX IF NOT EXISTS idx_order_outbox_pending
+    ON "OrderOutbox"(next_attempt_at, id) WHERE status = 'PENDING';
@@ -0,0 +1,116 @@
+-- ============================================
+-- Migration 013: Maintained order counters on "Shipments"
+-- ============================================
+-- Each shipment carries its order count, per-status counts and total weight, so
+-- listing shipments and advancing their status no longer re-aggregates "Orders".
+-- The counters are kept by statement-level triggers on "Orders", in the same
+-- transaction as the change that moved them: one UPDATE of "Shipments" per
+-- statement and shipment, however many orders the statement touched.
+-- Orders in any other status (Assigned, Cancelled, ...) only count in order_count.
+
+ALTER TABLE "Shipments"
+    ADD COLUMN IF NOT EXISTS order_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS pending_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS in_transit_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS delivered_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS total_weight NUMERIC(12,2) NOT NULL DEFAULT 0;
+
+-- Adds the summed per-shipment deltas of one statement; skips shipments whose
+-- deltas cancel out (e.g. an update that only sets the POD)
+CREATE OR REPLACE FUNCTION shipments_add_order_counts(delta jsonb) RETURNS void AS $$
+    UPDATE "Shipments" s
+    SET order_count = s.order_count + d.n,
+        pending_count = s.pending_count + d.pending,
+        in_transit_count = s.in_transit_count + d.in_transit,
+        delivered_count = s.delivered_count + d.delivered,
+        total_weight = s.total_weight + d.weight
+    FROM (
+        -- Orders without a status contribute NULLs, hence the COALESCEs
+        SELECT shipment_id, SUM(n) AS n, COALESCE(SUM(pending), 0) AS pending,
+               COALESCE(SUM(in_transit), 0) AS in_transit, COALESCE(SUM(delivered), 0) AS delivered,
+               SUM(weight) AS weight
+        FROM jsonb_to_recordset(delta)
+            AS x(shipment_id uuid, n int, pending int, in_transit int, delivered int, weight numeric)
+        GROUP BY shipment_id
+        HAVING SUM(n) <> 0 OR SUM(pending) <> 0 OR SUM(in_transit) <> 0
+            OR SUM(delivered) <> 0 OR SUM(weight) <> 0
+    ) d
+    WHERE s.shipment_id = d.shipment_id;
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION shipments_apply_order_counts() RETURNS trigger AS $$
+DECLARE
+    delta jsonb;
+BEGIN
+    -- Transition tables only exist for the event that defines them
+    IF TG_OP = 'INSERT' THEN
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, 1 AS n, (status = 'Pending')::int AS pending,
+                   (status = 'InTransit')::int AS in_transit, (status = 'Delivered')::int AS delivered,
+                   COALESCE(weight, 0) AS weight
+            FROM new_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, -1 AS n, -(status = 'Pending')::int AS pending,
+                   -(status = 'InTransit')::int AS in_transit, -(status = 'Delivered')::int AS delivered,
+                   -COALESCE(weight, 0) AS weight
+            FROM old_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    ELSE
+        SELECT jsonb_agg(r) INTO delta FROM (
+            SELECT shipment_id, -1 AS n, -(status = 'Pending')::int AS pending,
+                   -(status = 'InTransit')::int AS in_transit, -(status = 'Delivered')::int AS delivered,
+                   -COALESCE(weight, 0) AS weight
+            FROM old_orders WHERE shipment_id IS NOT NULL
+            UNION ALL
+            SELECT shipment_id, 1, (status = 'Pending')::int, (status = 'InTransit')::int,
+                   (status = 'Delivered')::int, COALESCE(weight, 0)
+            FROM new_orders WHERE shipment_id IS NOT NULL
+        ) r;
+    END IF;
+
+    IF delta IS NOT NULL THEN
+        PERFORM shipments_add_order_counts(delta);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_orders_shipment_counts_insert ON "Orders";
+CREATE TRIGGER trg_orders_shipment_counts_insert
+    AFTER INSERT ON "Orders"
+    REFERENCING NEW TABLE AS new_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+DROP TRIGGER IF EXISTS trg_orders_shipment_counts_update ON "Orders";
+CREATE TRIGGER trg_orders_shipment_counts_update
+    AFTER UPDATE ON "Orders"
+    REFERENCING OLD TABLE AS old_orders NEW TABLE AS new_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+DROP TRIGGER IF EXISTS trg_orders_shipment_counts_delete ON "Orders";
+CREATE TRIGGER trg_orders_shipment_counts_delete
+    AFTER DELETE ON "Orders"
+    REFERENCING OLD TABLE AS old_orders
+    FOR EACH STATEMENT EXECUTE FUNCTION shipments_apply_order_counts();
+
+-- Backfill existing shipments
+UPDATE "Shipments" s
+SET order_count = c.n,
+    pending_count = c.pending,
+    in_transit_count = c.in_transit,
+    delivered_count = c.delivered,
+    total_weight = c.weight
+FROM (
+    SELECT shipment_id,
+           COUNT(*) AS n,
+           COUNT(*) FILTER (WHERE status = 'Pending') AS pending,
+           COUNT(*) FILTER (WHERE status = 'InTransit') AS in_transit,
+           COUNT(*) FILTER (WHERE status = 'Delivered') AS delivered,
+           COALESCE(SUM(weight), 0) AS weight
+    FROM "Orders"
+    WHERE shipment_id IS NOT NULL
+    GROUP BY shipment_id
+) c
+WHERE s.shipment_id = c.shipment_id;
@@ -0,0 +1,38 @@
+-- ============================================
+-- Migration 014: One "Driver" row per user
+-- ============================================
+-- The user service inserts role rows with INSERT ... ON CONFLICT (user_id) DO NOTHING,
+-- which needs a unique index. The other role tables are keyed by user_id already;
+-- "Driver" had only a plain index, so racing first logins could create duplicates.
+-- Duplicates are folded into the row with a carrier (else the lowest driver_id),
+-- moving their shipments over first so no assignment is lost.
+
+WITH ranked AS (
+    SELECT driver_id,
+           first_value(driver_id) OVER (
+               PARTITION BY user_id ORDER BY (carrier_id IS NULL), driver_id
+           ) AS keep_id
+    FROM "Driver"
+    WHERE user_id IS NOT NULL
+)
+UPDATE "Shipments" s
+SET driver_id = r.keep_id
+FROM ranked r
+WHERE s.driver_id = r.driver_id
+  AND r.driver_id <> r.keep_id;
+
+WITH ranked AS (
+    SELECT driver_id,
+           first_value(driver_id) OVER (
+               PARTITION BY user_id ORDER BY (carrier_id IS NULL), driver_id
+           ) AS keep_id
+    FROM "Driver"
+    WHERE user_id IS NOT NULL
+)
+DELETE FROM "Driver" d
+USING ranked r
+WHERE d.driver_id = r.driver_id
+  AND r.driver_id <> r.keep_id;
+
+DROP INDEX IF EXISTS idx_driver_user_id;
+CREATE UNIQUE INDEX idx_driver_user_id ON "Driver"(user_id);
@@ -0,0 +1,26 @@
+-- ============================================
+-- Migration 015: Signal role membership removals
+-- ============================================
+-- The order service's RoleDirectory caches the "WarehouseStaff" and "Csr" members
+-- and reloads them on a role_membership_changed notification. The user service
+-- signals the rows it adds; these triggers signal rows removed or moved, including
+-- those cascaded from deleting a "Users" row, so a removed recipient is dropped
+-- right away instead of at the next periodic refresh.
+
+CREATE OR REPLACE FUNCTION notify_role_membership_changed() RETURNS trigger AS $$
+BEGIN
+    -- Delivered on commit; repeats within one transaction are folded into one
+    PERFORM pg_notify('role_membership_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_warehouse_staff_membership_changed ON "WarehouseStaff";
+CREATE TRIGGER trg_warehouse_staff_membership_changed
+    AFTER UPDATE OR DELETE OR TRUNCATE ON "WarehouseStaff"
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_role_membership_changed();
+
+DROP TRIGGER IF EXISTS trg_csr_membership_changed ON "Csr";
+CREATE TRIGGER trg_csr_membership_changed
+    AFTER UPDATE OR DELETE OR TRUNCATE ON "Csr"
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_role_membership_changed();
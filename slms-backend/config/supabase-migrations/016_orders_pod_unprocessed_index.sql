@@ -0,0 +1,10 @@
+-- ============================================
+-- Migration 016: Find proofs of delivery without derived images
+-- ============================================
+-- The order service periodically re-queues proofs whose display copy was never
+-- made (image queue full, restart while queued, rows moved out of the legacy pod
+-- bytea). Proofs that cannot get derived images (PDFs, oversized or unreadable
+-- images) get pod_normalized_ref = pod_ref, so only work still to do matches.
+
+CREATE INDEX IF NOT EXISTS idx_orders_pod_unprocessed ON "Orders"(order_id)
+    WHERE pod_ref IS NOT NULL AND pod_normalized_ref IS NULL;
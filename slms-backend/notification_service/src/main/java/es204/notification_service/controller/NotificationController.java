@@ -5,8 +5,9 @@ import es204.notification_service.dto.NotificationDTO;
 import es204.notification_service.model.NotificationType;
 import es204.notification_service.service.NotificationService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,17 +15,25 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/notifications")
-@RequiredArgsConstructor
 @Slf4j
 @CrossOrigin(origins = "*")
 public class NotificationController {
     
     private final NotificationService notificationService;
+    private final int maxBatchSize;
+    
+    public NotificationController(
+            NotificationService notificationService,
+            @Value("${notification.batch.max-size:1000}") int maxBatchSize) {
+        this.notificationService = notificationService;
+        this.maxBatchSize = maxBatchSize;
+    }
     
     /**
      * Create a new notification (internal use - called by other services)
@@ -36,6 +45,22 @@ public class NotificationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(notification);
     }
     
+    /**
+     * Create many notifications at once (internal use - e.g. fanning one event out to all staff).
+     * Everything is stored in one transaction; the response lists the created
+     * notifications in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<NotificationDTO>> createNotifications(
+            @RequestBody @NotEmpty List<@Valid CreateNotificationRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " notifications per batch");
+        }
+        log.info("Creating batch of {} notifications", requests.size());
+        List<NotificationDTO> notifications = notificationService.createNotifications(requests);
+        return ResponseEntity.status(HttpStatus.CREATED).body(notifications);
+    }
+    
     /**
      * Get all notifications for a user
      */
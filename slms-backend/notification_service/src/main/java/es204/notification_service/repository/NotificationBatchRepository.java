@@ -0,0 +1,141 @@
+package es204.notification_service.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es204.notification_service.model.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk inserts into "Notifications" with hand-written SQL.
+ *
+ * The entity uses IDENTITY keys, which stops Hibernate from batching inserts, so
+ * a batch goes in as one INSERT ... SELECT FROM unnest(...) statement (one array
+ * per column) instead of one round trip per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationBatchRepository {
+
+    // Ids are drawn in the input CTE next to each row's position, so the result maps
+    // back to the input by ord whatever order the rows are inserted or returned in
+    private static final String INSERT_BATCH = """
+        WITH input AS (
+            SELECT nextval(pg_get_serial_sequence('"Notifications"', 'id')) AS id, t.*
+            FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[], ?::uuid[], ?::text[], ?::text[])
+                WITH ORDINALITY AS t(user_id, type, title, message, related_entity_type, related_entity_id,
+                                     severity, metadata, ord)
+        ),
+        inserted AS (
+            INSERT INTO "Notifications"
+                (id, user_id, type, title, message, related_entity_type, related_entity_id,
+                 severity, is_read, created_at, metadata)
+            SELECT i.id, i.user_id, i.type, i.title, i.message, i.related_entity_type, i.related_entity_id,
+                   COALESCE(i.severity, 'INFO'), FALSE, CURRENT_TIMESTAMP, COALESCE(i.metadata::jsonb, '{}'::jsonb)
+            FROM input i
+            RETURNING id, created_at
+        )
+        SELECT i.ord, n.id, n.created_at
+        FROM inserted n
+        JOIN input i ON i.id = n.id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Insert all notifications in a single statement and fill in their generated
+     * id and createdAt. The list is updated in place and keeps its order.
+     */
+    public void insertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        int n = notifications.size();
+        Object[] userIds = new Object[n];
+        String[] types = new String[n];
+        String[] titles = new String[n];
+        String[] messages = new String[n];
+        String[] relatedEntityTypes = new String[n];
+        Object[] relatedEntityIds = new Object[n];
+        String[] severities = new String[n];
+        String[] metadata = new String[n];
+
+        for (int i = 0; i < n; i++) {
+            Notification notification = notifications.get(i);
+            userIds[i] = notification.getUserId();
+            types[i] = notification.getType().name();
+            titles[i] = notification.getTitle();
+            messages[i] = notification.getMessage();
+            relatedEntityTypes[i] = notification.getRelatedEntityType();
+            relatedEntityIds[i] = notification.getRelatedEntityId();
+            severities[i] = notification.getSeverity() != null ? notification.getSeverity().name() : null;
+            metadata[i] = toJson(notification);
+        }
+
+        List<Generated> generated = jdbcTemplate.execute((ConnectionCallback<List<Generated>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_BATCH)) {
+                ps.setArray(1, connection.createArrayOf("uuid", userIds));
+                ps.setArray(2, textArray(connection, types));
+                ps.setArray(3, textArray(connection, titles));
+                ps.setArray(4, textArray(connection, messages));
+                ps.setArray(5, textArray(connection, relatedEntityTypes));
+                ps.setArray(6, connection.createArrayOf("uuid", relatedEntityIds));
+                ps.setArray(7, textArray(connection, severities));
+                ps.setArray(8, textArray(connection, metadata));
+
+                List<Generated> rows = new ArrayList<>(n);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Generated(rs.getInt("ord"), rs.getLong("id"), rs.getTimestamp("created_at")));
+                    }
+                }
+                return rows;
+            }
+        });
+
+        if (generated == null || generated.size() != n) {
+            throw new IllegalStateException("Batch insert returned "
+                    + (generated == null ? 0 : generated.size()) + " rows for " + n + " notifications");
+        }
+
+        for (Generated row : generated) {
+            // ord is 1-based
+            Notification notification = notifications.get(row.ord() - 1);
+            notification.setId(row.id());
+            if (row.createdAt() != null) {
+                notification.setCreatedAt(row.createdAt().toLocalDateTime());
+            }
+        }
+    }
+
+    private static Array textArray(Connection connection, String[] values) throws SQLException {
+        return connection.createArrayOf("text", values);
+    }
+
+    private String toJson(Notification notification) {
+        if (notification.getMetadata() == null || notification.getMetadata().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(notification.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid metadata for notification to user " + notification.getUserId(), e);
+        }
+    }
+
+    private record Generated(int ord, long id, Timestamp createdAt) {
+    }
+}
@@ -4,6 +4,7 @@ import es204.notification_service.dto.CreateNotificationRequest;
 import es204.notification_service.dto.NotificationDTO;
 import es204.notification_service.model.Notification;
 import es204.notification_service.model.NotificationType;
+import es204.notification_service.repository.NotificationBatchRepository;
 import es204.notification_service.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -23,6 +25,7 @@ import java.util.UUID;
 public class NotificationService {
     
     private final NotificationRepository notificationRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
     private static final int RETENTION_DAYS = 30;
     
     /**
@@ -30,23 +33,30 @@ public class NotificationService {
      */
     @Transactional
     public NotificationDTO createNotification(CreateNotificationRequest request) {
-        Notification notification = Notification.builder()
-                .userId(request.getUserId())
-                .type(request.getType())
-                .title(request.getTitle())
-                .message(request.getMessage())
-                .relatedEntityType(request.getRelatedEntityType())
-                .relatedEntityId(request.getRelatedEntityId())
-                .severity(request.getSeverity())
-                .metadata(request.getMetadata())
-                .build();
-        
-        Notification saved = notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(toEntity(request));
         log.info("Created notification {} for user {}", saved.getId(), saved.getUserId());
         
         return toDTO(saved);
     }
     
+    /**
+     * Create many notifications in one transaction and one insert statement.
+     * Results are returned in the same order as the requests.
+     */
+    @Transactional
+    public List<NotificationDTO> createNotifications(List<CreateNotificationRequest> requests) {
+        List<Notification> notifications = requests.stream()
+                .map(this::toEntity)
+                .toList();
+        
+        notificationBatchRepository.insertAll(notifications);
+        log.info("Created {} notifications in one batch", notifications.size());
+        
+        return notifications.stream()
+                .map(this::toDTO)
+                .toList();
+    }
+    
     /**
      * Get all notifications for a user with pagination
      */
@@ -121,6 +131,22 @@ public class NotificationService {
         log.info("Deleted {} notifications older than {} days", deleted, RETENTION_DAYS);
     }
     
+    /**
+     * Build a new entity from a create request
+     */
+    private Notification toEntity(CreateNotificationRequest request) {
+        return Notification.builder()
+                .userId(request.getUserId())
+                .type(request.getType())
+                .title(request.getTitle())
+                .message(request.getMessage())
+                .relatedEntityType(request.getRelatedEntityType())
+                .relatedEntityId(request.getRelatedEntityId())
+                .severity(request.getSeverity())
+                .metadata(request.getMetadata())
+                .build();
+    }
+    
     /**
      * Convert entity to DTO
      */
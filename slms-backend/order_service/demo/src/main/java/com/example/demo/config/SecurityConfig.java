@@ -2,15 +2,22 @@ package com.example.demo.config;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * Security configuration for Order Service
  * Validates JWT tokens from Keycloak and protects order endpoints
@@ -20,7 +27,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtDecoder jwtDecoder) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             // Enable CORS with custom configuration
@@ -44,11 +51,27 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             )
             // Enable OAuth2 Resource Server (JWT validation against Keycloak)
-            .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> {}));
+            .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.decoder(jwtDecoder)));
 
         return http.build();
     }
 
+    /**
+     * Keycloak token decoder (JWKS signature check plus issuer/expiry validation, as
+     * configured under spring.security.oauth2.resourceserver.jwt), with verified
+     * tokens cached until they expire
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties, MeterRegistry meterRegistry,
+                                 @Value("${security.jwt.cache.max-entries:10000}") int maxEntries) {
+        OAuth2ResourceServerProperties.Jwt jwt = properties.getJwt();
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwt.getJwkSetUri()).build();
+        decoder.setJwtValidator(jwt.getIssuerUri() != null
+                ? JwtValidators.createDefaultWithIssuer(jwt.getIssuerUri())
+                : JwtValidators.createDefault());
+        return new CachingJwtDecoder(decoder, meterRegistry, maxEntries);
+    }
+
     /**
      * Configure CORS to allow requests from frontend
      */
@@ -58,6 +81,8 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*")); // Allow all origins
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
+        // Pagination cursor for GET /api/orders, range headers for POD downloads
+        configuration.setExposedHeaders(List.of("X-Next-Cursor", "Accept-Ranges", "Content-Range"));
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,14 +1,61 @@
 package com.shipping.orderservice.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import com.shipping.orderservice.http.DownstreamClient;
+import com.shipping.orderservice.http.DownstreamClientFactory;
+
+import jakarta.servlet.MultipartConfigElement;
 
 @Configuration
 public class AppConfig {
     
+    /**
+     * Pooled, bounded client for the notification service
+     */
+    @Bean
+    public DownstreamClient notificationServiceClient(
+            DownstreamClientFactory factory,
+            @Value("${notification.service.url:http://notification-service:8084}") String baseUrl,
+            @Value("${http.notification.max-connections:20}") int maxConnections,
+            @Value("${http.notification.max-in-flight:20}") int maxInFlight,
+            @Value("${http.notification.connect-timeout-ms:1000}") long connectTimeoutMs,
+            @Value("${http.notification.read-timeout-ms:5000}") long readTimeoutMs,
+            @Value("${http.notification.acquire-timeout-ms:250}") long acquireTimeoutMs,
+            @Value("${http.notification.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${http.notification.breaker.open-ms:10000}") long openMs) {
+        return factory.create(new DownstreamClient.Settings(
+                "notification-service",
+                baseUrl,
+                maxConnections,
+                maxInFlight,
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(readTimeoutMs),
+                Duration.ofMillis(acquireTimeoutMs),
+                failureThreshold,
+                Duration.ofMillis(openMs)));
+    }
+
+    /**
+     * Multipart limits derived from the proof-of-delivery upload limit: a part may be
+     * pod.upload.max-bytes, a request that plus pod.upload.request-headroom-bytes.
+     * Location and spool threshold still come from spring.servlet.multipart.*
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MultipartConfigElement multipartConfigElement(
+            MultipartProperties multipartProperties,
+            @Value("${pod.upload.max-bytes:10485760}") long podMaxUploadBytes,
+            @Value("${pod.upload.request-headroom-bytes:1048576}") long requestHeadroomBytes) {
+        MultipartConfigElement defaults = multipartProperties.createMultipartConfig();
+        return new MultipartConfigElement(
+                defaults.getLocation(),
+                podMaxUploadBytes,
+                podMaxUploadBytes + requestHeadroomBytes,
+                defaults.getFileSizeThreshold());
     }
 }
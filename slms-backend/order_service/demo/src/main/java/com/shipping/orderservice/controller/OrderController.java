@@ -1,17 +1,25 @@
 package com.shipping.orderservice.controller;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -19,70 +27,134 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.itextpdf.io.image.ImageDataFactory;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Image;
-import com.itextpdf.layout.element.Paragraph;
-import com.itextpdf.layout.properties.TextAlignment;
+import com.shipping.orderservice.dto.ConfirmDeliveryRequest;
+import com.shipping.orderservice.dto.OrderCursor;
+import com.shipping.orderservice.dto.OrderPage;
 import com.shipping.orderservice.dto.ReportAnomalyRequest;
 import com.shipping.orderservice.model.Order;
+import com.shipping.orderservice.repository.OrderOutboxRepository;
+import com.shipping.orderservice.repository.OrderQueryRepository;
 import com.shipping.orderservice.repository.OrderRepository;
-import com.shipping.orderservice.service.NotificationClient;
+import com.shipping.orderservice.service.CarrierCache;
+import com.shipping.orderservice.service.DocumentCache;
+import com.shipping.orderservice.service.IdentityResolver;
+import com.shipping.orderservice.service.OrderExportService;
+import com.shipping.orderservice.service.PodImageProcessor;
+import com.shipping.orderservice.service.ShippingDocumentRenderer;
+import com.shipping.orderservice.service.TrackingCache;
+import com.shipping.orderservice.storage.PodBlobStore;
+import com.shipping.orderservice.storage.PodTooLargeException;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
 public class OrderController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final List<String> TRACKING_POD_MODES = List.of("thumbnail", "original", "none");
+
+    private static final String ADVANCE_SHIPMENT_SQL = """
+        UPDATE "Shipments"
+        SET status = CASE WHEN delivered_count = order_count THEN 'Delivered' ELSE 'InTransit' END
+        WHERE shipment_id = ?
+          AND order_count > 0
+          AND in_transit_count + delivered_count = order_count
+          AND (status = 'Pending' OR (status = 'InTransit' AND delivered_count = order_count))
+        RETURNING status
+        """;
+
     private final OrderRepository repository;
     private final JdbcTemplate jdbcTemplate;
-    private final NotificationClient notificationClient;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderOutboxRepository orderOutbox;
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderExportService orderExportService;
+    private final ShippingDocumentRenderer documentRenderer;
+    private final DocumentCache documentCache;
+    private final PodBlobStore podBlobStore;
+    private final PodImageProcessor podImageProcessor;
+    private final TrackingCache trackingCache;
+    private final CarrierCache carrierCache;
+    private final IdentityResolver identityResolver;
+    private final long podMaxUploadBytes;
 
-    public OrderController(OrderRepository repository, JdbcTemplate jdbcTemplate, NotificationClient notificationClient) {
+    public OrderController(OrderRepository repository, JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate, OrderOutboxRepository orderOutbox,
+                           OrderQueryRepository orderQueryRepository, OrderExportService orderExportService,
+                           ShippingDocumentRenderer documentRenderer, DocumentCache documentCache,
+                           PodBlobStore podBlobStore, PodImageProcessor podImageProcessor, TrackingCache trackingCache,
+                           CarrierCache carrierCache, IdentityResolver identityResolver,
+                           @Value("${pod.upload.max-bytes:10485760}") long podMaxUploadBytes) {
         this.repository = repository;
         this.jdbcTemplate = jdbcTemplate;
-        this.notificationClient = notificationClient;
+        this.transactionTemplate = transactionTemplate;
+        this.orderOutbox = orderOutbox;
+        this.orderQueryRepository = orderQueryRepository;
+        this.orderExportService = orderExportService;
+        this.documentRenderer = documentRenderer;
+        this.documentCache = documentCache;
+        this.podBlobStore = podBlobStore;
+        this.podImageProcessor = podImageProcessor;
+        this.trackingCache = trackingCache;
+        this.carrierCache = carrierCache;
+        this.identityResolver = identityResolver;
+        this.podMaxUploadBytes = podMaxUploadBytes;
     }
 
+    /**
+     * List orders, newest first (orders without a date first), one keyset page at a time.
+     * The body stays a plain array; the cursor for the next page is returned in the
+     * X-Next-Cursor header (absent on the last page). Without cursor and limit the whole
+     * list is returned in one response, as before paging, for external clients that don't
+     * page; the frontend always pages or uses /counts and /{orderId}.
+     *
+     * @param cursor Opaque cursor from a previous X-Next-Cursor header
+     * @param limit Page size (default 100 when paging with a cursor, max 500)
+     * @param status Optional status filter
+     * @param carrierId Optional carrier filter
+     * @param from Optional inclusive lower bound on order date (ISO-8601)
+     * @param to Optional exclusive upper bound on order date (ISO-8601)
+     */
     @GetMapping
-    public ResponseEntity<?> getAllOrders() {
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) UUID carrierId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
         try {
-            // Use JdbcTemplate directly to execute the custom query with JOINs
-            String sql = """
-                SELECT 
-                    o.order_id::text as "orderId",
-                    o.costumer_id::text as "customerId",
-                    TRIM(CONCAT(COALESCE(u.first_name, ''), ' ', COALESCE(u.last_name, ''))) as "customerName",
-                    o.carrier_id::text as "carrierId",
-                    o.shipment_id::text as "shipmentId",
-                    o.origin_address as "originAddress",
-                    o.destination_address as "destinationAddress",
-                    o.weight as "weight",
-                    o.status as "status",
-                    o.order_date as "orderDate",
-                    o.error_message as "errorMessage"
-                FROM "Orders" o
-                LEFT JOIN "Costumer" c ON o.costumer_id = c.user_id
-                LEFT JOIN "Users" u ON c.user_id = u.id
-                ORDER BY o.order_date DESC
-                """;
-            
-            List<Map<String, Object>> orders = jdbcTemplate.queryForList(sql);
-            System.out.println("=== DEBUG: Orders fetched: " + orders.size());
-            if (!orders.isEmpty()) {
-                System.out.println("Sample order: " + orders.get(0));
+            OrderCursor position;
+            try {
+                position = cursor != null && !cursor.isBlank() ? OrderCursor.decode(cursor) : null;
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "ValidationError",
+                    "message", "Invalid cursor"
+                ));
             }
-            return ResponseEntity.ok(orders);
+
+            if (position == null && limit == null) {
+                return ResponseEntity.ok(orderQueryRepository.findAll(status, carrierId, from, to));
+            }
+
+            OrderPage page = orderQueryRepository.findPage(position, limit != null ? limit : DEFAULT_PAGE_SIZE,
+                    status, carrierId, from, to);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
         } catch (Exception e) {
             System.err.println("=== ERROR fetching orders: " + e.getClass().getName() + " - " + e.getMessage());
             e.printStackTrace();
@@ -93,6 +165,65 @@ public class OrderController {
         }
     }
 
+    /**
+     * Number of orders per status, for dashboards that only show counts
+     */
+    @GetMapping("/counts")
+    public ResponseEntity<Map<String, Long>> getOrderCounts() {
+        return ResponseEntity.ok(orderQueryRepository.countByStatus());
+    }
+
+    /**
+     * Get one order, in the same shape as the listing
+     * @param orderId The order ID
+     */
+    @GetMapping("/{orderId}")
+    public ResponseEntity<Map<String, Object>> getOrder(@PathVariable UUID orderId) {
+        Map<String, Object> order = orderQueryRepository.findOne(orderId);
+        if (order == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(order);
+    }
+
+    /**
+     * Export orders as NDJSON (default) or CSV, streamed from a server-side cursor.
+     * Intended for BI pulls; memory use is constant regardless of the number of rows.
+     *
+     * @param format "ndjson" or "csv"
+     * @param status Optional status filter
+     * @param carrierId Optional carrier filter
+     * @param from Optional inclusive lower bound on order date (ISO-8601)
+     * @param to Optional exclusive upper bound on order date (ISO-8601)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) UUID carrierId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        MediaType contentType = exportFormat == OrderExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        String filename = "orders." + (exportFormat == OrderExportService.Format.CSV ? "csv" : "ndjson");
+
+        StreamingResponseBody body = out ->
+                orderExportService.export(exportFormat, status, carrierId, from, to, out);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<?> health() {
         try {
@@ -124,9 +255,8 @@ public class OrderController {
                     s.destination_address as "destinationAddress",
                     s.created_at as "createdAt",
                     s.estimated_delivery as "estimatedDelivery",
-                    COALESCE(
-                        (SELECT COUNT(*) FROM "Orders" o WHERE o.shipment_id = s.shipment_id), 0
-                    ) as "orderCount"
+                    s.order_count as "orderCount",
+                    s.total_weight as "totalWeight"
                 FROM "Shipments" s
                 WHERE s.carrier_id = ?::uuid
                 ORDER BY s.created_at DESC
@@ -144,45 +274,21 @@ public class OrderController {
         }
     }
 
+    /**
+     * Create an order. The ORDER_CREATED outbox event commits with it;
+     * OrderOutboxRelay sends the warehouse staff and customer notifications.
+     */
     @PostMapping
     public Order createOrder(@RequestBody Order order) {
-        Order savedOrder = repository.save(order);
-        
-        // Notify all warehouse staff about new order
-        try {
-            String customerNameSql = """
-                SELECT TRIM(CONCAT(COALESCE(u.first_name, ''), ' ', COALESCE(u.last_name, ''))) as customer_name
-                FROM "Costumer" c
-                LEFT JOIN "Users" u ON c.user_id = u.id
-                WHERE c.user_id = ?
-                """;
-            
-            String customerName = "Cliente";
-            try {
-                Map<String, Object> customerResult = jdbcTemplate.queryForMap(customerNameSql, order.getCustomerId());
-                customerName = (String) customerResult.get("customer_name");
-                if (customerName == null || customerName.trim().isEmpty()) {
-                    customerName = "Cliente";
-                }
-            } catch (Exception e) {
-                System.err.println("Could not fetch customer name: " + e.getMessage());
-            }
+        return transactionTemplate.execute(status -> {
+            Order savedOrder = repository.save(order);
             
-            // Get all warehouse staff Users.id (Notifications FK points to Users.id, not keycloak_id)
-            String warehouseStaffSql = "SELECT u.id FROM \"WarehouseStaff\" ws " +
-                    "JOIN \"Users\" u ON ws.user_id = u.id";
-            List<UUID> warehouseStaffUserIds = jdbcTemplate.queryForList(warehouseStaffSql, UUID.class);
+            Map<String, Object> event = new HashMap<>();
+            event.put("customerId", savedOrder.getCustomerId());
+            orderOutbox.append(savedOrder.getOrderId(), OrderOutboxRepository.ORDER_CREATED, event);
             
-            notificationClient.notifyAllWarehouseStaff(savedOrder.getOrderId(), customerName, warehouseStaffUserIds);
-            
-            // Notify customer about order creation
-            notificationClient.notifyOrderCreated(savedOrder.getOrderId(), order.getCustomerId());
-        } catch (Exception e) {
-            System.err.println("Failed to send new order notifications: " + e.getMessage());
-            // Don't fail the order creation if notification fails
-        }
-        
-        return savedOrder;
+            return savedOrder;
+        });
     }
 
     @PatchMapping("/{orderId}/assign")
@@ -200,9 +306,17 @@ public class OrderController {
         order.setCarrierId(carrierId);
         // Keep status as Pending - only changes to InTransit when dispatched
         order.setStatus("Pending");
-        return repository.save(order);
+        Order savedOrder = repository.save(order);
+        documentCache.invalidateOrder(orderId);
+        trackingCache.invalidateOrder(orderId);
+        return savedOrder;
     }
 
+    /**
+     * Update an order. Carrier and status changes are recorded as one ORDER_UPDATED
+     * outbox event in the same transaction; OrderOutboxRelay resolves carrier names
+     * and recipients and sends the notifications.
+     */
     @PutMapping("/{orderId}")
     public Order updateOrder(@PathVariable UUID orderId, @RequestBody Order updatedOrder) {
         Order order = repository.findById(orderId)
@@ -221,27 +335,6 @@ public class OrderController {
         boolean carrierChanged = (oldCarrierId != null && newCarrierId != null && !oldCarrierId.equals(newCarrierId)) ||
                                  (oldCarrierId == null && newCarrierId != null);
         
-        String oldCarrierName = null;
-        String newCarrierName = null;
-        
-        if (carrierChanged) {
-            try {
-                String carrierNameSql = "SELECT name FROM \"Carrier\" WHERE carrier_id = ?";
-                
-                // Get old carrier name if it exists
-                if (oldCarrierId != null) {
-                    oldCarrierName = jdbcTemplate.queryForObject(carrierNameSql, String.class, oldCarrierId);
-                } else {
-                    oldCarrierName = "Não Definido";
-                }
-                
-                // Get new carrier name
-                newCarrierName = jdbcTemplate.queryForObject(carrierNameSql, String.class, newCarrierId);
-            } catch (Exception e) {
-                System.err.println("Could not fetch carrier names: " + e.getMessage());
-            }
-        }
-        
         // Update fields
         order.setOriginAddress(updatedOrder.getOriginAddress());
         order.setDestinationAddress(updatedOrder.getDestinationAddress());
@@ -249,93 +342,45 @@ public class OrderController {
         order.setCarrierId(newCarrierId);
         order.setStatus(updatedOrder.getStatus());
         
-        Order savedOrder = repository.save(order);
-        
-        // Notify warehouse staff about carrier change or assignment
-        if (carrierChanged && newCarrierName != null) {
-            try {
-                // Get Users.id from Users table (Notifications FK points to Users.id, not keycloak_id)
-                String warehouseStaffSql = "SELECT u.id FROM \"WarehouseStaff\" ws " +
-                        "JOIN \"Users\" u ON ws.user_id = u.id";
-                List<UUID> warehouseStaffUserIds = jdbcTemplate.queryForList(warehouseStaffSql, UUID.class);
-                
-                for (UUID userId : warehouseStaffUserIds) {
-                    notificationClient.notifyCarrierChange(orderId, oldCarrierName, newCarrierName, userId);
-                }
-                
-                System.out.println("Sent carrier change notifications: " + oldCarrierName + " -> " + newCarrierName);
-            } catch (Exception e) {
-                System.err.println("Failed to send carrier change notifications: " + e.getMessage());
-                e.printStackTrace();
+        Order savedOrder = transactionTemplate.execute(status -> {
+            Order saved = repository.save(order);
+            if (carrierChanged || statusChanged) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("customerId", order.getCustomerId());
+                event.put("carrierChanged", carrierChanged);
+                event.put("oldCarrierId", oldCarrierId);
+                event.put("newCarrierId", newCarrierId);
+                event.put("statusChanged", statusChanged);
+                event.put("oldStatus", oldStatus);
+                event.put("newStatus", newStatus);
+                event.put("errorMessage", updatedOrder.getErrorMessage());
+                orderOutbox.append(orderId, OrderOutboxRepository.ORDER_UPDATED, event);
             }
-        }
+            return saved;
+        });
+        documentCache.invalidateOrder(orderId);
+        trackingCache.invalidateOrder(orderId);
         
-        // Notify customer about status change
-        if (statusChanged) {
-            try {
-                notificationClient.notifyOrderStatusChange(orderId, oldStatus, newStatus, order.getCustomerId());
-                
-                // If status changed to InTransit, also send dispatch notification
-                if ("InTransit".equals(newStatus) && newCarrierName != null) {
-                    notificationClient.notifyOrderDispatched(orderId, newCarrierName, order.getCustomerId());
-                }
-                
-                // If status changed to Failed, send failure notification to customer and warehouse staff
-                if ("Failed".equals(newStatus)) {
-                    String errorMessage = updatedOrder.getErrorMessage();
-                    if (errorMessage == null || errorMessage.trim().isEmpty()) {
-                        errorMessage = "Erro desconhecido";
-                    }
-                    
-                    // Notify customer
-                    notificationClient.notifyOrderFailed(orderId, errorMessage, order.getCustomerId());
-                    
-                    // Notify all warehouse staff
-                    String warehouseStaffSql = "SELECT u.id FROM \"WarehouseStaff\" ws " +
-                            "JOIN \"Users\" u ON ws.user_id = u.id";
-                    List<UUID> warehouseStaffUserIds = jdbcTemplate.queryForList(warehouseStaffSql, UUID.class);
-                    notificationClient.notifyAllWarehouseStaffOrderFailed(orderId, errorMessage, warehouseStaffUserIds);
-                    
-                    System.out.println("Sent order failure notifications for order " + orderId);
-                }
-                
-                System.out.println("Sent status change notification to customer: " + oldStatus + " -> " + newStatus);
-            } catch (Exception e) {
-                System.err.println("Failed to send status change notification to customer: " + e.getMessage());
-            }
-        }
-        
-        // If order was updated to InTransit and has a shipment, check if all orders in shipment are InTransit
-        if ("InTransit".equals(updatedOrder.getStatus()) && order.getShipmentId() != null) {
-            checkAndUpdateShipmentStatus(order.getShipmentId());
+        // If order moved along and has a shipment, the shipment may be ready to move too
+        if (statusChanged && order.getShipmentId() != null
+                && ("InTransit".equals(newStatus) || "Delivered".equals(newStatus))) {
+            advanceShipmentStatus(order.getShipmentId());
         }
         
         return savedOrder;
     }
     
     /**
-     * Check if all orders in a shipment are InTransit and update shipment status accordingly
+     * Move a shipment to InTransit once none of its orders is still waiting, and to
+     * Delivered once all of them are. Reads the counters the "Orders" triggers keep on
+     * "Shipments" (migration 013), so this is a single-row UPDATE however large the
+     * shipment; it is a no-op when the shipment is not ready or already moved.
      */
-    private void checkAndUpdateShipmentStatus(UUID shipmentId) {
+    private void advanceShipmentStatus(UUID shipmentId) {
         try {
-            String checkSql = """
-                SELECT COUNT(*) as total,
-                       SUM(CASE WHEN status = 'InTransit' THEN 1 ELSE 0 END) as intransit_count
-                FROM "Orders"
-                WHERE shipment_id = ?
-                """;
-            
-            Map<String, Object> result = jdbcTemplate.queryForMap(checkSql, shipmentId);
-            int total = ((Number) result.get("total")).intValue();
-            int inTransitCount = ((Number) result.get("intransit_count")).intValue();
-            
-            System.out.println("=== Shipment " + shipmentId + ": " + inTransitCount + "/" + total + " orders InTransit");
-            
-            // If all orders are InTransit, update shipment to InTransit
-            if (total > 0 && inTransitCount == total) {
-                String updateShipmentSql = "UPDATE \"Shipments\" SET status = 'InTransit' WHERE shipment_id = ?";
-                int rowsAffected = jdbcTemplate.update(updateShipmentSql, shipmentId);
-                System.out.println("=== Updated shipment " + shipmentId + " to InTransit (rows affected: " + rowsAffected + ")");
+            List<String> advanced = jdbcTemplate.queryForList(ADVANCE_SHIPMENT_SQL, String.class, shipmentId);
+            if (!advanced.isEmpty()) {
+                System.out.println("=== Updated shipment " + shipmentId + " to " + advanced.get(0));
             }
         } catch (Exception e) {
             System.err.println("=== ERROR checking/updating shipment status: " + e.getMessage());
@@ -343,44 +388,37 @@ public class OrderController {
         }
     }
 
+    /**
+     * Track an order by its tracking ID
+     * @param trackingId The tracking ID
+     * @param pod Inline proof of delivery: "thumbnail" (default), "original" or "none".
+     *            The proof is always available from proofOfDeliveryUrl; "thumbnail"
+     *            inlines nothing until the thumbnail exists (or if it never will, e.g. PDFs
+     *            and legacy bytea proofs), so clients fetch the URL instead.
+     */
     @GetMapping("/track/{trackingId}")
-    public ResponseEntity<Map<String, Object>> trackOrder(@PathVariable String trackingId) {
+    public ResponseEntity<Map<String, Object>> trackOrder(
+            @PathVariable String trackingId,
+            @RequestParam(defaultValue = "thumbnail") String pod) {
+        if (!TRACKING_POD_MODES.contains(pod)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "ValidationError",
+                "message", "pod must be one of " + TRACKING_POD_MODES
+            ));
+        }
         try {
-            String sql = """
-                SELECT 
-                    o.tracking_id as "trackingId",
-                    o.order_date as "orderDate",
-                    o.origin_address as "originAddress",
-                    o.destination_address as "destinationAddress",
-                    o.weight as "weight",
-                    o.status as "status",
-                    o.shipment_id::text as "shipmentId",
-                    o.actual_delivery_time as "actualDeliveryTime",
-                    o.pod as "proofOfDelivery",
-                    o.error_message as "errorMessage",
-                    c.name as "carrierName",
-                    c.carrier_id::text as "carrierId"
-                FROM "Orders" o
-                LEFT JOIN "Carrier" c ON o.carrier_id = c.carrier_id
-                WHERE o.tracking_id = ?
-                """;
-            
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, trackingId);
-            
-            if (results.isEmpty()) {
-                return ResponseEntity.notFound().build();
+            Map<String, Object> result;
+            if ("original".equals(pod)) {
+                // Full-size images (and legacy bytea proofs) are never cached
+                TrackingCache.Loaded loaded = loadTrackingView(trackingId, pod);
+                result = loaded != null ? loaded.body() : null;
+            } else {
+                result = trackingCache.getOrLoad(trackingId + "|" + pod, () -> loadTrackingView(trackingId, pod));
             }
-            
-            Map<String, Object> result = results.get(0);
-            
-            // Convert POD bytea to base64 string if it exists
-            if (result.get("proofOfDelivery") != null) {
-                byte[] podBytes = (byte[]) result.get("proofOfDelivery");
-                String base64Pod = java.util.Base64.getEncoder().encodeToString(podBytes);
-                result.put("proofOfDelivery", base64Pod);
-                System.out.println("=== Converted POD to base64, size: " + base64Pod.length() + " chars");
+
+            if (result == null) {
+                return ResponseEntity.notFound().build();
             }
-            
             return ResponseEntity.ok(result);
             
         } catch (Exception e) {
@@ -388,164 +426,158 @@ public class OrderController {
         }
     }
 
+    private TrackingCache.Loaded loadTrackingView(String trackingId, String pod) throws IOException {
+        String sql = """
+            SELECT 
+                o.order_id::text as "orderId",
+                o.tracking_id as "trackingId",
+                o.order_date as "orderDate",
+                o.origin_address as "originAddress",
+                o.destination_address as "destinationAddress",
+                o.weight as "weight",
+                o.status as "status",
+                o.shipment_id::text as "shipmentId",
+                o.actual_delivery_time as "actualDeliveryTime",
+                o.pod_ref as "podRef",
+                o.pod_thumbnail_ref as "podThumbnailRef",
+                CASE WHEN o.pod_ref IS NULL AND ? THEN o.pod END as "proofOfDelivery",
+                o.pod_ref IS NULL AND o.pod IS NOT NULL as "legacyPod",
+                o.error_message as "errorMessage",
+                c.name as "carrierName",
+                c.carrier_id::text as "carrierId"
+            FROM "Orders" o
+            LEFT JOIN "Carrier" c ON o.carrier_id = c.carrier_id
+            WHERE o.tracking_id = ?
+            """;
+        
+        // Legacy bytea proofs are originals, so they are only read for pod=original
+        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, "original".equals(pod), trackingId);
+        
+        if (results.isEmpty()) {
+            return null;
+        }
+        
+        Map<String, Object> result = results.get(0);
+        
+        // Convert POD to base64 string if it exists. Migrated orders keep it in the
+        // blob store; rows not yet migrated still carry the legacy bytea.
+        String orderId = (String) result.remove("orderId");
+        String podRef = (String) result.remove("podRef");
+        String podThumbnailRef = (String) result.remove("podThumbnailRef");
+        boolean legacyPod = Boolean.TRUE.equals(result.remove("legacyPod"));
+        if (podRef != null || legacyPod) {
+            result.put("proofOfDeliveryUrl", "/api/orders/" + orderId + "/pod");
+        }
+        if (podRef != null) {
+            // The thumbnail is filled in asynchronously; until then only the URL is returned
+            String inlineRef = switch (pod) {
+                case "original" -> podRef;
+                case "thumbnail" -> podThumbnailRef;
+                default -> null;
+            };
+            if (inlineRef != null && podBlobStore.exists(inlineRef)) {
+                result.put("proofOfDelivery", podBlobStore.read(inlineRef));
+            }
+        }
+        if (result.get("proofOfDelivery") != null) {
+            byte[] podBytes = (byte[]) result.get("proofOfDelivery");
+            String base64Pod = java.util.Base64.getEncoder().encodeToString(podBytes);
+            result.put("proofOfDelivery", base64Pod);
+            System.out.println("=== Converted POD to base64, size: " + base64Pod.length() + " chars");
+        }
+        
+        return new TrackingCache.Loaded(UUID.fromString(orderId), result);
+    }
+
     @GetMapping("/{orderId}/packing-slip")
-    public ResponseEntity<byte[]> generatePackingSlip(@PathVariable UUID orderId) {
+    public ResponseEntity<byte[]> generatePackingSlip(
+            @PathVariable UUID orderId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Order order = repository.findById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found"));
-            
-            // Get carrier name
-            String carrierName = "Unknown";
-            if (order.getCarrierId() != null) {
-                List<Map<String, Object>> carriers = jdbcTemplate.queryForList(
-                    "SELECT name FROM \"Carrier\" WHERE carrier_id = ?", 
-                    order.getCarrierId()
-                );
-                if (!carriers.isEmpty()) {
-                    carrierName = (String) carriers.get(0).get("name");
-                }
-            }
-            
-            // Generate PDF
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            // Add content
-            document.add(new Paragraph("PACKING SLIP")
-                    .setFontSize(20)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER));
-            document.add(new Paragraph("\n"));
-            
-            document.add(new Paragraph("Order ID: " + order.getOrderId()));
-            document.add(new Paragraph("Date: " + order.getOrderDate()));
-            document.add(new Paragraph("Status: " + order.getStatus()));
-            document.add(new Paragraph("\n"));
-            
-            document.add(new Paragraph("SHIPPING DETAILS").setBold());
-            document.add(new Paragraph("From: " + order.getOriginAddress()));
-            document.add(new Paragraph("To: " + order.getDestinationAddress()));
-            document.add(new Paragraph("Weight: " + order.getWeight() + " kg"));
-            document.add(new Paragraph("Carrier: " + carrierName));
-            document.add(new Paragraph("\n"));
-            
-            document.add(new Paragraph("Customer ID: " + order.getCustomerId()));
-            
-            document.close();
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", 
-                "packing-slip-" + order.getOrderId() + ".pdf");
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(baos.toByteArray());
-                    
+            String carrierName = findCarrierName(order.getCarrierId());
+
+            String key = documentCache.key(DocumentCache.DocumentType.PACKING_SLIP, order, carrierName);
+            return documentResponse(order.getOrderId(), key, ifNoneMatch,
+                    "packing-slip-" + order.getOrderId() + ".pdf",
+                    () -> documentRenderer.renderPackingSlip(order, carrierName));
+
         } catch (Exception e) {
             throw new RuntimeException("Error generating packing slip: " + e.getMessage());
         }
     }
 
     @GetMapping("/{orderId}/shipping-label")
-    public ResponseEntity<byte[]> generateShippingLabel(@PathVariable UUID orderId) {
+    public ResponseEntity<byte[]> generateShippingLabel(
+            @PathVariable UUID orderId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Order order = repository.findById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found"));
-            
-            // Get carrier name
-            String carrierName = "Unknown";
-            if (order.getCarrierId() != null) {
-                List<Map<String, Object>> carriers = jdbcTemplate.queryForList(
-                    "SELECT name FROM \"Carrier\" WHERE carrier_id = ?", 
-                    order.getCarrierId()
-                );
-                if (!carriers.isEmpty()) {
-                    carrierName = (String) carriers.get(0).get("name");
-                }
-            }
-            
-            // Generate QR Code for tracking
-            String trackingData = order.getOrderId().toString();
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(trackingData, BarcodeFormat.QR_CODE, 150, 150);
-            BufferedImage qrImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
-            ByteArrayOutputStream qrBaos = new ByteArrayOutputStream();
-            ImageIO.write(qrImage, "PNG", qrBaos);
-            byte[] qrBytes = qrBaos.toByteArray();
-            
-            // Generate PDF
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            // Add title
-            document.add(new Paragraph("SHIPPING LABEL")
-                    .setFontSize(24)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER));
-            document.add(new Paragraph("\n"));
-            
-            // Add carrier logo/name
-            document.add(new Paragraph(carrierName)
-                    .setFontSize(18)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER));
-            document.add(new Paragraph("\n"));
-            
-            // Add recipient address (larger font)
-            document.add(new Paragraph("DELIVER TO:")
-                    .setFontSize(12)
-                    .setBold());
-            document.add(new Paragraph(order.getDestinationAddress())
-                    .setFontSize(16)
-                    .setBold());
-            document.add(new Paragraph("\n"));
-            
-            // Add origin address
-            document.add(new Paragraph("FROM:")
-                    .setFontSize(10)
-                    .setBold());
-            document.add(new Paragraph(order.getOriginAddress())
-                    .setFontSize(12));
-            document.add(new Paragraph("\n"));
-            
-            // Add weight and tracking info
-            document.add(new Paragraph("Weight: " + order.getWeight() + " kg")
-                    .setFontSize(12));
-            document.add(new Paragraph("Tracking ID: " + order.getOrderId().toString().substring(0, 13))
-                    .setFontSize(10));
-            document.add(new Paragraph("\n"));
-            
-            // Add QR Code
-            Image qrCodeImage = new Image(ImageDataFactory.create(qrBytes));
-            qrCodeImage.setHorizontalAlignment(com.itextpdf.layout.properties.HorizontalAlignment.CENTER);
-            document.add(qrCodeImage);
-            
-            document.add(new Paragraph("Scan for tracking")
-                    .setFontSize(10)
-                    .setTextAlignment(TextAlignment.CENTER));
-            
-            document.close();
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", 
-                "shipping-label-" + order.getOrderId() + ".pdf");
-            
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(baos.toByteArray());
-                    
+            String carrierName = findCarrierName(order.getCarrierId());
+
+            String key = documentCache.key(DocumentCache.DocumentType.SHIPPING_LABEL, order, carrierName);
+            return documentResponse(order.getOrderId(), key, ifNoneMatch,
+                    "shipping-label-" + order.getOrderId() + ".pdf",
+                    () -> documentRenderer.renderShippingLabel(order, carrierName));
+
         } catch (Exception e) {
             throw new RuntimeException("Error generating shipping label: " + e.getMessage());
         }
     }
 
+    /**
+     * Look up a carrier's display name, "Unknown" if not set or not found
+     */
+    private String findCarrierName(UUID carrierId) {
+        String name = carrierCache.name(carrierId);
+        return name != null ? name : "Unknown";
+    }
+
+    /**
+     * Serve a rendered PDF through the document cache.
+     * The cache key is the hash of the document inputs, so it is used directly as a
+     * strong ETag: a matching If-None-Match gets a 304 without touching the renderer.
+     */
+    private ResponseEntity<byte[]> documentResponse(UUID orderId, String key, String ifNoneMatch,
+                                                    String filename, DocumentCache.Renderer renderer) throws Exception {
+        String etag = DocumentCache.etag(key);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+
+        if (etagMatches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        byte[] pdf = documentCache.getOrRender(orderId, key, renderer);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(pdf);
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get all orders for a specific customer by their keycloak ID
      * @param keycloakId The keycloak ID of the customer
@@ -573,11 +605,17 @@ public class OrderController {
                 LEFT JOIN "Costumer" c ON o.costumer_id = c.user_id
                 LEFT JOIN "Users" u ON c.user_id = u.id
                 LEFT JOIN "Carrier" car ON o.carrier_id = car.carrier_id
-                WHERE u.keycloak_id::text = ?
+                WHERE o.costumer_id = ?
                 ORDER BY o.order_date DESC
                 """;
             
-            List<Map<String, Object>> orders = jdbcTemplate.queryForList(sql, keycloakId);
+            // Resolve the sub once (cached) and filter on idx_orders_costumer_id
+            IdentityResolver.Identity identity = identityResolver.resolve(keycloakId);
+            if (identity == null || identity.customerId() == null) {
+                return ResponseEntity.ok(List.of());
+            }
+            
+            List<Map<String, Object>> orders = jdbcTemplate.queryForList(sql, identity.customerId());
             System.out.println("=== Found " + orders.size() + " orders for customer");
             
             return ResponseEntity.ok(orders);
@@ -592,7 +630,7 @@ public class OrderController {
     }
 
     @PostMapping("/confirm-delivery")
-    public ResponseEntity<?> confirmDelivery(@RequestBody com.shipping.orderservice.dto.ConfirmDeliveryRequest request) {
+    public ResponseEntity<?> confirmDelivery(@RequestBody ConfirmDeliveryRequest request) {
         try {
             System.out.println("=== Confirming delivery for order: " + request.getOrderId());
             
@@ -624,49 +662,159 @@ public class OrderController {
                 ));
             }
             
-            // Atualizar a ordem com a prova de entrega
-            String updateSql = """
-                UPDATE "Orders" 
-                SET pod = ?, 
-                    actual_delivery_time = CURRENT_TIMESTAMP,
-                    status = 'Delivered'
-                WHERE order_id::text = ?
-                """;
-            
-            int updated = jdbcTemplate.update(updateSql, proofOfDelivery, request.getOrderId());
-            
-            if (updated > 0) {
-                System.out.println("=== Successfully confirmed delivery for order: " + request.getOrderId());
-                
-                // Log adicional se temos localização
-                if (request.getLocation() != null) {
-                    System.out.println("=== Delivery location: " + 
-                        request.getLocation().getLatitude() + ", " + 
-                        request.getLocation().getLongitude());
-                }
-                
-                return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Delivery confirmed successfully",
-                    "orderId", request.getOrderId(),
-                    "proofType", request.getProofType(),
-                    "timestamp", request.getTimestamp()
-                ));
-            } else {
-                return ResponseEntity.status(500).body(Map.of(
-                    "error", "Update failed",
-                    "message", "Failed to update order with delivery confirmation"
-                ));
+            if (proofOfDelivery.length > podMaxUploadBytes) {
+                return podTooLarge();
             }
-            
+
+            // Guardar a prova de entrega no blob store; a ordem fica só com a referência
+            String podRef = podBlobStore.put(proofOfDelivery);
+
+            ConfirmDeliveryRequest.Location location = request.getLocation();
+            return completeDelivery(request.getOrderId(), podRef, request.getProofType(), request.getTimestamp(),
+                    location != null ? location.getLatitude() : null,
+                    location != null ? location.getLongitude() : null);
+
         } catch (Exception e) {
-            System.err.println("=== ERROR confirming delivery: " + e.getMessage());
-            e.printStackTrace();
+            return confirmDeliveryError(e);
+        }
+    }
+
+    /**
+     * Confirm delivery with the proof uploaded as a multipart file.
+     * The container spools the whole part to a temp file first, rejecting it with 413 once
+     * it exceeds pod.upload.max-bytes (see AppConfig.multipartConfigElement); the file
+     * is then copied to the blob store. Use the application/octet-stream variant to have
+     * the upload written to the blob store in a single pass.
+     *
+     * @param orderId The order ID
+     * @param proof The proof of delivery file (photo or signature)
+     */
+    @PostMapping(value = "/confirm-delivery", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> confirmDeliveryMultipart(
+            @RequestParam String orderId,
+            @RequestPart("proof") MultipartFile proof,
+            @RequestParam(required = false) String proofType,
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude) {
+        try (InputStream in = proof.getInputStream()) {
+            System.out.println("=== Confirming delivery (multipart) for order: " + orderId);
+            return confirmDeliveryFromStream(orderId, proof.getSize(), in, proofType, timestamp, latitude, longitude);
+        } catch (Exception e) {
+            return confirmDeliveryError(e);
+        }
+    }
+
+    /**
+     * Confirm delivery with the proof sent as the raw request body.
+     * Metadata travels as query parameters; the body is streamed to the blob store.
+     *
+     * @param orderId The order ID
+     * @param body The proof of delivery bytes
+     */
+    @PostMapping(value = "/confirm-delivery", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> confirmDeliveryStream(
+            @RequestParam String orderId,
+            @RequestParam(required = false) String proofType,
+            @RequestParam(required = false) String timestamp,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            InputStream body) {
+        try {
+            System.out.println("=== Confirming delivery (stream) for order: " + orderId);
+            return confirmDeliveryFromStream(orderId, contentLength, body, proofType, timestamp, latitude, longitude);
+        } catch (Exception e) {
+            return confirmDeliveryError(e);
+        }
+    }
+
+    private ResponseEntity<?> confirmDeliveryFromStream(String orderId, Long declaredLength, InputStream in,
+                                                        String proofType, String timestamp,
+                                                        Double latitude, Double longitude) throws Exception {
+        String checkOrderSql = "SELECT COUNT(*) FROM \"Orders\" WHERE order_id::text = ?";
+        Integer count = jdbcTemplate.queryForObject(checkOrderSql, Integer.class, orderId);
+        if (count == null || count == 0) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Reject before reading anything when the client already told us the size
+        if (declaredLength != null && declaredLength > podMaxUploadBytes) {
+            return podTooLarge();
+        }
+
+        String podRef;
+        try {
+            podRef = podBlobStore.put(in, podMaxUploadBytes);
+        } catch (PodTooLargeException e) {
+            return podTooLarge();
+        }
+
+        return completeDelivery(orderId, podRef, proofType, timestamp, latitude, longitude);
+    }
+
+    private ResponseEntity<?> completeDelivery(String orderId, String podRef, String proofType, String timestamp,
+                                               Double latitude, Double longitude) {
+        // Atualizar a ordem com a prova de entrega
+        String updateSql = """
+            UPDATE "Orders" 
+            SET pod_ref = ?, 
+                pod = NULL, 
+                actual_delivery_time = CURRENT_TIMESTAMP,
+                status = 'Delivered'
+            WHERE order_id::text = ?
+            RETURNING shipment_id
+            """;
+
+        // The ORDER_DELIVERED event snapshots the previous status, so it goes in first
+        int updated = transactionTemplate.execute(status -> {
+            orderOutbox.appendDelivered(orderId);
+            List<UUID> shipmentIds = jdbcTemplate.queryForList(updateSql, UUID.class, podRef, orderId);
+            // Same transaction, so the shipment completes together with its last order
+            shipmentIds.stream().filter(Objects::nonNull).forEach(this::advanceShipmentStatus);
+            return shipmentIds.size();
+        });
+
+        if (updated == 0) {
             return ResponseEntity.status(500).body(Map.of(
-                "error", e.getClass().getSimpleName(),
-                "message", e.getMessage() != null ? e.getMessage() : "Unknown error occurred"
+                "error", "Update failed",
+                "message", "Failed to update order with delivery confirmation"
             ));
         }
+
+        System.out.println("=== Successfully confirmed delivery for order: " + orderId);
+        documentCache.invalidateOrder(UUID.fromString(orderId));
+        trackingCache.invalidateOrder(UUID.fromString(orderId));
+        podImageProcessor.submit(UUID.fromString(orderId), podRef);
+
+        // Log adicional se temos localização
+        if (latitude != null && longitude != null) {
+            System.out.println("=== Delivery location: " + latitude + ", " + longitude);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", true);
+        body.put("message", "Delivery confirmed successfully");
+        body.put("orderId", orderId);
+        body.put("proofType", proofType);
+        body.put("timestamp", timestamp);
+        return ResponseEntity.ok(body);
+    }
+
+    private ResponseEntity<?> podTooLarge() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+            "error", "Proof too large",
+            "message", "Proof of delivery must not exceed " + podMaxUploadBytes + " bytes"
+        ));
+    }
+
+    private static ResponseEntity<?> confirmDeliveryError(Exception e) {
+        System.err.println("=== ERROR confirming delivery: " + e.getMessage());
+        e.printStackTrace();
+        return ResponseEntity.status(500).body(Map.of(
+            "error", e.getClass().getSimpleName(),
+            "message", e.getMessage() != null ? e.getMessage() : "Unknown error occurred"
+        ));
     }
 
     @PostMapping("/report-anomaly")
@@ -702,46 +850,24 @@ public class OrderController {
                 ));
             }
 
-            // Update order status to Failed and set error message
+            // Update order status to Failed and set error message; the ANOMALY_REPORTED event
+            // commits with it and OrderOutboxRelay notifies CSRs, the customer and warehouse staff
+            UUID orderId = UUID.fromString(request.getOrderId());
             String updateSql = "UPDATE \"Orders\" SET status = 'Failed', error_message = ? WHERE order_id = ?::uuid";
-            int rowsAffected = jdbcTemplate.update(updateSql, request.getErrorMessage(), request.getOrderId());
+            int rowsAffected = transactionTemplate.execute(status -> {
+                int rows = jdbcTemplate.update(updateSql, request.getErrorMessage(), request.getOrderId());
+                if (rows > 0) {
+                    Map<String, Object> event = new HashMap<>();
+                    event.put("errorMessage", request.getErrorMessage());
+                    orderOutbox.append(orderId, OrderOutboxRepository.ANOMALY_REPORTED, event);
+                }
+                return rows;
+            });
 
             if (rowsAffected > 0) {
                 System.out.println("Successfully reported anomaly for order: " + request.getOrderId());
-                UUID orderId = UUID.fromString(request.getOrderId());
-                
-                try {
-                    // Get order details including customer ID
-                    String orderSql = "SELECT costumer_id FROM \"Orders\" WHERE order_id = ?::uuid";
-                    UUID customerId = jdbcTemplate.queryForObject(orderSql, UUID.class, request.getOrderId());
-                    
-                    // Get customer email
-                    String customerEmailSql = "SELECT u.email FROM \"Costumer\" c " +
-                            "JOIN \"Users\" u ON c.user_id = u.id WHERE c.user_id = ?";
-                    String customerEmail = jdbcTemplate.queryForObject(customerEmailSql, String.class, customerId);
-                    
-                    // 1. Notify all CSRs about the anomaly (with customer email)
-                    String csrSql = "SELECT u.id FROM \"Csr\" csr " +
-                            "JOIN \"Users\" u ON csr.user_id = u.id";
-                    List<UUID> csrUserIds = jdbcTemplate.queryForList(csrSql, UUID.class);
-                    notificationClient.notifyAllCSRs(orderId, "Anomalia de Entrega", request.getErrorMessage(), customerEmail, csrUserIds);
-                    System.out.println("Sent anomaly notifications to " + csrUserIds.size() + " CSRs");
-                    
-                    // 2. Notify customer about the anomaly report
-                    notificationClient.notifyOrderFailed(orderId, request.getErrorMessage(), customerId);
-                    System.out.println("Sent anomaly notification to customer");
-                    
-                    // 3. Notify all warehouse staff
-                    String warehouseStaffSql = "SELECT u.id FROM \"WarehouseStaff\" ws " +
-                            "JOIN \"Users\" u ON ws.user_id = u.id";
-                    List<UUID> warehouseStaffUserIds = jdbcTemplate.queryForList(warehouseStaffSql, UUID.class);
-                    notificationClient.notifyAllWarehouseStaffOrderFailed(orderId, request.getErrorMessage(), warehouseStaffUserIds);
-                    System.out.println("Sent anomaly notifications to " + warehouseStaffUserIds.size() + " warehouse staff");
-                    
-                } catch (Exception e) {
-                    System.err.println("Failed to send anomaly notifications: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                documentCache.invalidateOrder(orderId);
+                trackingCache.invalidateOrder(orderId);
                 
                 return ResponseEntity.ok(Map.of(
                     "success", true,
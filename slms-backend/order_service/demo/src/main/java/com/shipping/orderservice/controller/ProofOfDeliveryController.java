@@ -0,0 +1,142 @@
+package com.shipping.orderservice.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.shipping.orderservice.storage.PodBlobStore;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves proof-of-delivery blobs straight from the blob store.
+ *
+ * By default the display-sized copy made by PodImageProcessor is served (falling back
+ * to the original while it is not ready); ?variant=original or ?variant=thumbnail pick
+ * a specific one. Supports a single HTTP byte range (e.g. for resuming large photo
+ * downloads on mobile); the bytes are copied from the file channel to the response
+ * without being loaded into memory. Orders whose proof is still the legacy "Orders".pod
+ * bytea (not yet moved by PodBlobMigrator) get those bytes, without range support.
+ */
+@RestController
+@RequestMapping("/api/orders")
+@CrossOrigin(origins = "*")
+public class ProofOfDeliveryController {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PodBlobStore podBlobStore;
+
+    public ProofOfDeliveryController(JdbcTemplate jdbcTemplate, PodBlobStore podBlobStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.podBlobStore = podBlobStore;
+    }
+
+    /**
+     * Download the proof of delivery of an order
+     * @param orderId The order ID
+     * @param variant "display" (default), "original" or "thumbnail"
+     * @param range Optional single byte range ("bytes=start-end")
+     */
+    @GetMapping("/{orderId}/pod")
+    public void getProofOfDelivery(
+            @PathVariable UUID orderId,
+            @RequestParam(defaultValue = "display") String variant,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) throws IOException {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT pod_ref, pod_normalized_ref, pod_thumbnail_ref, pod_ref IS NULL AND pod IS NOT NULL AS legacy
+                FROM "Orders" WHERE order_id = ?
+                """, orderId);
+        if (!rows.isEmpty() && Boolean.TRUE.equals(rows.get(0).get("legacy"))) {
+            writeLegacy(orderId, response);
+            return;
+        }
+        String ref = rows.isEmpty() ? null : selectVariant(rows.get(0), variant);
+        if (ref == null || !podBlobStore.exists(ref)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long size = podBlobStore.size(ref);
+        String etag = "\"" + ref + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long count = size;
+        if (range != null) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multiple ranges are not supported; answering with the full body is allowed
+            if (ranges.size() == 1) {
+                HttpRange requested = ranges.get(0);
+                start = requested.getRangeStart(size);
+                long end = requested.getRangeEnd(size);
+                if (start >= size || end < start) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                count = end - start + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        response.setContentType(podBlobStore.contentType(ref));
+        response.setContentLengthLong(count);
+        podBlobStore.transferTo(ref, start, count, Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
+
+    private void writeLegacy(UUID orderId, HttpServletResponse response) throws IOException {
+        List<byte[]> pods = jdbcTemplate.queryForList(
+                "SELECT pod FROM \"Orders\" WHERE order_id = ? AND pod IS NOT NULL", byte[].class, orderId);
+        if (pods.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        byte[] pod = pods.get(0);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setContentType(PodBlobStore.sniffContentType(pod, pod.length));
+        response.setContentLength(pod.length);
+        response.getOutputStream().write(pod);
+        response.flushBuffer();
+    }
+
+    private static String selectVariant(Map<String, Object> row, String variant) {
+        String original = (String) row.get("pod_ref");
+        String derived = switch (variant) {
+            case "original" -> null;
+            case "thumbnail" -> (String) row.get("pod_thumbnail_ref");
+            default -> (String) row.get("pod_normalized_ref");
+        };
+        return derived != null ? derived : original;
+    }
+}
@@ -1,30 +1,46 @@
 package com.shipping.orderservice.controller;
 
+import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.shipping.orderservice.dto.CreateShipmentRequest;
 import com.shipping.orderservice.dto.ShipmentWithOrdersDTO;
-import com.shipping.orderservice.model.Order;
+import com.shipping.orderservice.dto.ShippingLabelData;
 import com.shipping.orderservice.model.Shipment;
 import com.shipping.orderservice.model.Shipment.ShipmentStatus;
-import com.shipping.orderservice.repository.OrderRepository;
+import com.shipping.orderservice.repository.OrderQueryRepository;
 import com.shipping.orderservice.repository.ShipmentRepository;
+import com.shipping.orderservice.service.BulkLabelService;
+import com.shipping.orderservice.service.CarrierCache;
+import com.shipping.orderservice.service.IdentityResolver;
+import com.shipping.orderservice.service.TrackingCache;
 
 /**
  * REST Controller for managing Shipments
@@ -35,15 +51,56 @@ import com.shipping.orderservice.repository.ShipmentRepository;
 @CrossOrigin(origins = "*")
 public class ShipmentController {
 
+    private static final String INSERT_SHIPMENT_SQL = """
+        INSERT INTO "Shipments" (shipment_id, carrier_id, driver_id, status)
+        VALUES (?, ?, ?, 'Pending')
+        """;
+
+    /**
+     * Claims every still-unassigned Pending order in the list in one statement and
+     * returns the ids it took. Rows are locked in order_id order so two overlapping
+     * requests cannot deadlock; a request that waited re-checks the row and skips it
+     * if the other one claimed it first.
+     */
+    private static final String CLAIM_ORDERS_SQL = """
+        WITH claimable AS (
+            SELECT order_id
+            FROM "Orders"
+            WHERE order_id = ANY(?) AND status = 'Pending' AND shipment_id IS NULL
+            ORDER BY order_id
+            FOR UPDATE
+        )
+        UPDATE "Orders" o
+        SET shipment_id = ?, carrier_id = ?
+        FROM claimable c
+        WHERE o.order_id = c.order_id
+        RETURNING o.order_id
+        """;
+
     @Autowired
     private ShipmentRepository shipmentRepository;
     
-    @Autowired
-    private OrderRepository orderRepository;
-    
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    private BulkLabelService bulkLabelService;
+
+    @Autowired
+    private TrackingCache trackingCache;
+
+    @Autowired
+    private CarrierCache carrierCache;
+
+    @Autowired
+    private IdentityResolver identityResolver;
+
     /**
      * Get all shipments
      * @return List of all shipments
@@ -60,12 +117,16 @@ public class ShipmentController {
     }
 
     /**
-     * Get ALL shipments for the current driver (user) - not filtered by status
+     * Get ALL shipments for the current driver (user), optionally filtered by status
      * This endpoint extracts the keycloak ID from the JWT token automatically
+     * Shipments and orders are loaded with a single query (see OrderQueryRepository.findDriverManifest)
+     * @param status Optional shipment status (Pending, InTransit, Delivered, Cancelled)
      * @return List of all shipments with their associated orders for the current driver
      */
     @GetMapping("/driver")
-    public ResponseEntity<List<ShipmentWithOrdersDTO>> getMyShipments(Authentication authentication) {
+    public ResponseEntity<List<ShipmentWithOrdersDTO>> getMyShipments(
+            Authentication authentication,
+            @RequestParam(required = false) String status) {
         try {
             // Extract keycloak ID from JWT token using Spring Security
             String keycloakId = null;
@@ -80,29 +141,23 @@ public class ShipmentController {
             
             System.out.println("=== Fetching ALL shipments for current driver with keycloakId: " + keycloakId);
             
-            // Get ALL shipments for this user (not filtered by status)
-            List<Shipment> shipments = shipmentRepository.findAllShipmentsByKeycloakId(keycloakId);
-            
-            System.out.println("=== Found " + shipments.size() + " shipments");
-            
-            // For each shipment, fetch its orders
-            List<ShipmentWithOrdersDTO> result = new ArrayList<>();
-            
-            for (Shipment shipment : shipments) {
-                try {
-                    System.out.println("=== Processing shipment: " + shipment.getShipmentId());
-                    List<Order> orders = orderRepository.findByShipmentId(shipment.getShipmentId());
-                    System.out.println("    Found " + orders.size() + " orders");
-                    result.add(new ShipmentWithOrdersDTO(shipment, orders));
-                } catch (Exception e) {
-                    System.err.println("    ERROR processing shipment " + shipment.getShipmentId() + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
+            ShipmentStatus statusFilter = status != null && !status.isBlank() ? ShipmentStatus.valueOf(status) : null;
+
+            // Not a driver (or not synced yet): nothing assigned
+            IdentityResolver.Identity identity = identityResolver.resolve(keycloakId);
+            if (identity == null || identity.driverId() == null) {
+                return ResponseEntity.ok(List.of());
             }
-            
+
+            // Shipments and their orders in one query
+            List<ShipmentWithOrdersDTO> result = orderQueryRepository.findDriverManifest(identity.driverId(), statusFilter);
+
             System.out.println("=== Returning " + result.size() + " shipments with orders");
             return ResponseEntity.ok(result);
             
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid status: " + status);
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("=== ERROR fetching shipments for current driver: " + e.getMessage());
             e.printStackTrace();
@@ -203,43 +258,99 @@ public class ShipmentController {
         }
     }
     
+    /**
+     * Print all shipping labels of a shipment as one multi-page PDF.
+     * Orders and carrier names are loaded with a single query and the PDF is
+     * streamed to the client page by page.
+     *
+     * @param shipmentId UUID of the shipment
+     * @return PDF with one label per order, 404 if the shipment has no orders
+     */
+    @GetMapping("/{shipmentId}/labels")
+    public ResponseEntity<StreamingResponseBody> getShipmentLabels(@PathVariable UUID shipmentId) {
+        List<ShippingLabelData> labels = orderQueryRepository.findLabelsByShipment(shipmentId);
+        if (labels.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return labelsResponse(labels, "shipment-labels-" + shipmentId + ".pdf");
+    }
+
+    /**
+     * Print all shipping labels of a carrier's orders placed in a date range as one multi-page PDF
+     *
+     * @param carrierId UUID of the carrier
+     * @param from Inclusive start of the order date range (ISO-8601)
+     * @param to Exclusive end of the order date range (ISO-8601)
+     * @return PDF with one label per order, 404 if no orders match
+     */
+    @GetMapping("/carrier/{carrierId}/labels")
+    public ResponseEntity<StreamingResponseBody> getCarrierLabels(
+            @PathVariable UUID carrierId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<ShippingLabelData> labels = orderQueryRepository.findLabelsByCarrier(carrierId, from, to);
+        if (labels.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return labelsResponse(labels, "carrier-labels-" + carrierId + ".pdf");
+    }
+
+    private ResponseEntity<StreamingResponseBody> labelsResponse(List<ShippingLabelData> labels, String filename) {
+        StreamingResponseBody body = out -> {
+            try {
+                bulkLabelService.writeLabels(labels, out);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error generating shipping labels: " + e.getMessage(), e);
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
     /**
      * Driver Manifest Endpoint
-     * Get InTransit shipments with their orders for a specific user
+     * Get shipments with their orders for a specific user
      * Navigation: keycloakId (JWT sub) → Users.keycloak_id → Users.id → Driver.user_id → Driver.driver_id → Shipments
      * 
      * @param keycloakId The keycloak_id (comes from JWT sub claim)
-     * @return List of InTransit shipments with their associated orders
+     * @param status Optional shipment status (Pending, InTransit, Delivered, Cancelled); all when absent
+     * @return List of shipments with their associated orders
      */
     @GetMapping("/my-shipments/{keycloakId}")
-    public ResponseEntity<List<ShipmentWithOrdersDTO>> getMyShipmentsWithOrders(@PathVariable String keycloakId) {
+    public ResponseEntity<List<ShipmentWithOrdersDTO>> getMyShipmentsWithOrders(
+            @PathVariable String keycloakId,
+            @RequestParam(required = false) String status) {
         try {
             System.out.println("=== Fetching ALL shipments for keycloakId: " + keycloakId);
             
-            // Get ALL shipments for this user (not filtered by status)
-            List<Shipment> shipments = shipmentRepository.findAllShipmentsByKeycloakId(keycloakId);
-            
-            System.out.println("=== Found " + shipments.size() + " shipments");
-            
-            // For each shipment, fetch its orders
-            List<ShipmentWithOrdersDTO> result = new ArrayList<>();
-            
-            for (Shipment shipment : shipments) {
-                try {
-                    System.out.println("=== Processing shipment: " + shipment.getShipmentId());
-                    List<Order> orders = orderRepository.findByShipmentId(shipment.getShipmentId());
-                    System.out.println("    Found " + orders.size() + " orders");
-                    result.add(new ShipmentWithOrdersDTO(shipment, orders));
-                } catch (Exception e) {
-                    System.err.println("    ERROR processing shipment " + shipment.getShipmentId() + ": " + e.getMessage());
-                    e.printStackTrace();
-                    // Continue with next shipment instead of failing completely
-                }
+            ShipmentStatus statusFilter = status != null && !status.isBlank() ? ShipmentStatus.valueOf(status) : null;
+
+            // Not a driver (or not synced yet): nothing assigned
+            IdentityResolver.Identity identity = identityResolver.resolve(keycloakId);
+            if (identity == null || identity.driverId() == null) {
+                return ResponseEntity.ok(List.of());
             }
-            
+
+            // Shipments and their orders in one query
+            List<ShipmentWithOrdersDTO> result = orderQueryRepository.findDriverManifest(identity.driverId(), statusFilter);
+
             System.out.println("=== Returning " + result.size() + " shipments with orders");
             return ResponseEntity.ok(result);
             
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid status: " + status);
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("=== ERROR fetching shipments for keycloakId " + keycloakId + ": " + e.getClass().getName() + " - " + e.getMessage());
             e.printStackTrace();
@@ -251,7 +362,10 @@ public class ShipmentController {
      * Create a new shipment
      * This endpoint receives a list of order IDs and a carrier ID, 
      * creates a shipment, assigns a random driver from the carrier,
-     * and updates all orders to point to this shipment
+     * and updates all orders to point to this shipment.
+     * All-or-nothing: the orders are claimed with one set-based UPDATE in the same
+     * transaction as the shipment insert; if any cannot be claimed nothing is
+     * written and the response lists them in rejectedOrderIds.
      * 
      * @param request CreateShipmentRequest containing orderIds and carrierId
      * @return Success response with shipmentId or error
@@ -288,34 +402,25 @@ public class ShipmentController {
                 ));
             }
 
-            // Verify all orders exist and are Pending
+            // Parse every id up front so a bad one cannot leave a half-built shipment
+            Set<UUID> orderIds = new LinkedHashSet<>();
+            List<String> malformed = new ArrayList<>();
             for (String orderIdStr : request.getOrderIds()) {
-                UUID orderId;
                 try {
-                    orderId = UUID.fromString(orderIdStr);
-                } catch (IllegalArgumentException e) {
-                    return ResponseEntity.badRequest().body(Map.of(
-                        "error", "ValidationError",
-                        "message", "Invalid order ID format: " + orderIdStr
-                    ));
-                }
-
-                String checkOrderSql = "SELECT COUNT(*) FROM \"Orders\" WHERE order_id = ? AND status = 'Pending' AND shipment_id IS NULL";
-                Integer count = jdbcTemplate.queryForObject(checkOrderSql, Integer.class, orderId);
-                
-                if (count == null || count == 0) {
-                    return ResponseEntity.badRequest().body(Map.of(
-                        "error", "OrderNotValid",
-                        "message", "Order " + orderIdStr + " not found, not in Pending status, or already assigned to a shipment"
-                    ));
+                    orderIds.add(UUID.fromString(orderIdStr));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    malformed.add(orderIdStr);
                 }
             }
+            if (!malformed.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "ValidationError",
+                    "message", "Invalid order ID format: " + String.join(", ", malformed)
+                ));
+            }
 
             // Check if carrier exists
-            String checkCarrierSql = "SELECT COUNT(*) FROM \"Carrier\" WHERE carrier_id = ?";
-            Integer carrierCount = jdbcTemplate.queryForObject(checkCarrierSql, Integer.class, carrierId);
-            
-            if (carrierCount == null || carrierCount == 0) {
+            if (!carrierCache.exists(carrierId)) {
                 return ResponseEntity.badRequest().body(Map.of(
                     "error", "CarrierNotFound",
                     "message", "Carrier not found with ID: " + request.getCarrierId()
@@ -326,45 +431,51 @@ public class ShipmentController {
             // Driver should be assigned via user-service API or remain null until assigned
             UUID driverId = null; // Will be assigned later through proper microservice communication
 
-            // Create the shipment with status 'Pending'
             UUID shipmentId = UUID.randomUUID();
-            String createShipmentSql = """
-                INSERT INTO "Shipments" (shipment_id, carrier_id, driver_id, status)
-                VALUES (?, ?, ?, 'Pending')
-                """;
-            
-            int rowsAffected = jdbcTemplate.update(createShipmentSql, shipmentId, carrierId, driverId);
+            UUID[] requested = orderIds.toArray(UUID[]::new);
 
-            if (rowsAffected == 0) {
-                return ResponseEntity.status(500).body(Map.of(
-                    "error", "ShipmentCreationFailed",
-                    "message", "Failed to create shipment"
-                ));
-            }
+            // Create the shipment and claim its orders in one transaction; if any order
+            // cannot be claimed the whole thing rolls back and nothing is assigned
+            List<UUID> rejected = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(INSERT_SHIPMENT_SQL, shipmentId, carrierId, driverId);
 
-            System.out.println("Shipment created with ID: " + shipmentId);
+                Set<UUID> claimed = new HashSet<>(
+                        jdbcTemplate.queryForList(CLAIM_ORDERS_SQL, UUID.class, (Object) requested, shipmentId, carrierId));
 
-            // Update all orders to reference this shipment (keeping original status)
-            String updateOrdersSql = """
-                UPDATE "Orders" 
-                SET shipment_id = ?, carrier_id = ?
-                WHERE order_id = ?
-                """;
+                List<UUID> notClaimed = new ArrayList<>();
+                for (UUID orderId : orderIds) {
+                    if (!claimed.contains(orderId)) {
+                        notClaimed.add(orderId);
+                    }
+                }
+                if (!notClaimed.isEmpty()) {
+                    status.setRollbackOnly();
+                }
+                return notClaimed;
+            });
 
-            for (String orderIdStr : request.getOrderIds()) {
-                UUID orderId = UUID.fromString(orderIdStr);
-                jdbcTemplate.update(updateOrdersSql, shipmentId, carrierId, orderId);
-                System.out.println("Updated order: " + orderId);
+            if (rejected != null && !rejected.isEmpty()) {
+                System.out.println("Shipment rejected, " + rejected.size() + " of " + orderIds.size() + " orders not claimable");
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "OrderNotValid",
+                    "message", rejected.size() + " order(s) not found, not in Pending status, or already assigned to a shipment",
+                    "rejectedOrderIds", rejected.stream().map(UUID::toString).toList()
+                ));
             }
 
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "message", "Shipment created successfully",
-                "shipmentId", shipmentId.toString(),
-                "driverId", driverId.toString(),
-                "carrierId", carrierId.toString(),
-                "ordersUpdated", request.getOrderIds().size()
-            ));
+            System.out.println("Shipment created with ID: " + shipmentId + " (" + orderIds.size() + " orders)");
+            for (UUID orderId : orderIds) {
+                trackingCache.invalidateOrder(orderId);
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("message", "Shipment created successfully");
+            body.put("shipmentId", shipmentId.toString());
+            body.put("driverId", driverId != null ? driverId.toString() : null);
+            body.put("carrierId", carrierId.toString());
+            body.put("ordersUpdated", orderIds.size());
+            return ResponseEntity.ok(body);
 
         } catch (Exception e) {
             System.err.println("=== ERROR creating shipment: " + e.getMessage());
@@ -0,0 +1,60 @@
+package com.shipping.orderservice.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset cursor for the order listing.
+ * Points at the last (order_date, order_id) pair returned in a page, so the next
+ * page starts strictly after it instead of skipping rows with OFFSET. The date is
+ * null when the last row has no order_date.
+ * Encoded as an opaque URL-safe base64 token for clients.
+ */
+public class OrderCursor {
+
+    private final Instant orderDate;
+    private final UUID orderId;
+
+    public OrderCursor(Instant orderDate, UUID orderId) {
+        this.orderDate = orderDate;
+        this.orderId = orderId;
+    }
+
+    public Instant getOrderDate() {
+        return orderDate;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Encode this cursor as an opaque token
+     */
+    public String encode() {
+        String raw = (orderDate != null ? orderDate.toString() : "") + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new OrderCursor(
+                separator > 0 ? Instant.parse(raw.substring(0, separator)) : null,
+                UUID.fromString(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
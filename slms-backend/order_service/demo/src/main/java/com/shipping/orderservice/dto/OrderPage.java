@@ -0,0 +1,27 @@
+package com.shipping.orderservice.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of the order listing plus the cursor for the next page
+ * (null when there are no more rows).
+ */
+public class OrderPage {
+
+    private final List<Map<String, Object>> items;
+    private final String nextCursor;
+
+    public OrderPage(List<Map<String, Object>> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
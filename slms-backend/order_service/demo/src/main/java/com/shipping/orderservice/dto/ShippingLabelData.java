@@ -0,0 +1,26 @@
+package com.shipping.orderservice.dto;
+
+import com.shipping.orderservice.model.Order;
+
+/**
+ * Everything needed to print one shipping label: the order (without POD)
+ * and the display name of its carrier
+ */
+public class ShippingLabelData {
+
+    private final Order order;
+    private final String carrierName;
+
+    public ShippingLabelData(Order order, String carrierName) {
+        this.order = order;
+        this.carrierName = carrierName;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public String getCarrierName() {
+        return carrierName;
+    }
+}
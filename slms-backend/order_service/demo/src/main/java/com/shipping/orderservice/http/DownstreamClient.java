@@ -0,0 +1,124 @@
+package com.shipping.orderservice.http;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * HTTP client for one downstream service (e.g. the notification service).
+ *
+ * Requests go through a pooled connection manager with the target's timeouts, a
+ * bulkhead capping in-flight requests and a circuit breaker. When either guard
+ * rejects a call it fails fast with DownstreamUnavailableException instead of
+ * holding the calling thread. Built by DownstreamClientFactory.
+ */
+public class DownstreamClient implements AutoCloseable {
+
+    /**
+     * Per-target pool, timeout, bulkhead and breaker settings
+     */
+    public record Settings(
+            String name,
+            String baseUrl,
+            int maxConnections,
+            int maxInFlight,
+            Duration connectTimeout,
+            Duration readTimeout,
+            Duration acquireTimeout,
+            int failureThreshold,
+            Duration openDuration) {
+    }
+
+    private final Settings settings;
+    private final RestTemplate restTemplate;
+    private final CloseableHttpClient httpClient;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter rejectedOpen;
+    private final Counter rejectedBulkhead;
+
+    DownstreamClient(Settings settings, RestTemplate restTemplate, CloseableHttpClient httpClient,
+                     CircuitBreaker circuitBreaker, Counter rejectedOpen, Counter rejectedBulkhead) {
+        this.settings = settings;
+        this.restTemplate = restTemplate;
+        this.httpClient = httpClient;
+        this.bulkhead = new Semaphore(settings.maxInFlight());
+        this.circuitBreaker = circuitBreaker;
+        this.rejectedOpen = rejectedOpen;
+        this.rejectedBulkhead = rejectedBulkhead;
+    }
+
+    /**
+     * POST a JSON body to a path relative to the target's base URL
+     */
+    public <T> T post(String path, Object body, Class<T> responseType) {
+        return call(() -> restTemplate.postForObject(path, body, responseType));
+    }
+
+    /**
+     * GET a path relative to the target's base URL
+     */
+    public <T> T get(String path, Class<T> responseType, Object... uriVariables) {
+        return call(() -> restTemplate.getForObject(path, responseType, uriVariables));
+    }
+
+    private <T> T call(Supplier<T> request) {
+        if (!acquireBulkhead()) {
+            rejectedBulkhead.increment();
+            throw new DownstreamUnavailableException(settings.name(), settings.maxInFlight() + " requests in flight");
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                rejectedOpen.increment();
+                throw new DownstreamUnavailableException(settings.name(), "circuit open");
+            }
+            try {
+                T result = request.get();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (HttpClientErrorException e) {
+                // A 4xx means the service answered; it is the request that is wrong
+                circuitBreaker.onSuccess();
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(settings.acquireTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public String getName() {
+        return settings.name();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.state();
+    }
+
+    public int getInFlight() {
+        return settings.maxInFlight() - bulkhead.availablePermits();
+    }
+
+    @Override
+    public void close() throws Exception {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.shipping.orderservice.http;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * Builds a DownstreamClient per target service.
+ *
+ * Each target gets its own HTTP/1.1 keep-alive pool, so one slow service cannot take
+ * the connections of another. RestTemplates come from Spring's RestTemplateBuilder,
+ * which keeps the http.client.requests metrics and trace propagation.
+ *
+ * Metrics, tagged with the target name: httpcomponents.httpclient.pool.* (pool state),
+ * http.client.inflight, http.client.circuit.state (0 closed, 1 open, 2 half-open)
+ * and http.client.rejected (reason=circuit-open|bulkhead).
+ */
+@Component
+public class DownstreamClientFactory {
+
+    private static final TimeValue CONNECTION_TTL = TimeValue.ofMinutes(5);
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(10);
+    private static final TimeValue EVICT_IDLE_AFTER = TimeValue.ofSeconds(30);
+
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final MeterRegistry meterRegistry;
+
+    public DownstreamClientFactory(RestTemplateBuilder restTemplateBuilder, MeterRegistry meterRegistry) {
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public DownstreamClient create(DownstreamClient.Settings settings) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        .setTimeToLive(CONNECTION_TTL)
+                        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                        .build())
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // Waiting for a pooled connection is bounded like waiting for a bulkhead permit
+                        .setConnectionRequestTimeout(Timeout.of(settings.acquireTimeout()))
+                        .setResponseTimeout(Timeout.of(settings.readTimeout()))
+                        .build())
+                .evictIdleConnections(EVICT_IDLE_AFTER)
+                // Retries are the caller's decision (e.g. the outbox relay), not the transport's
+                .disableAutomaticRetries()
+                .build();
+
+        RestTemplate restTemplate = restTemplateBuilder
+                .rootUri(settings.baseUrl())
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, settings.name())
+                .bindTo(meterRegistry);
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                settings.failureThreshold(), settings.openDuration().toMillis());
+
+        DownstreamClient client = new DownstreamClient(settings, restTemplate, httpClient, circuitBreaker,
+                meterRegistry.counter("http.client.rejected", "target", settings.name(), "reason", "circuit-open"),
+                meterRegistry.counter("http.client.rejected", "target", settings.name(), "reason", "bulkhead"));
+
+        Gauge.builder("http.client.inflight", client, DownstreamClient::getInFlight)
+                .tag("target", settings.name())
+                .register(meterRegistry);
+        Gauge.builder("http.client.circuit.state", client, c -> c.getCircuitState().ordinal())
+                .tag("target", settings.name())
+                .register(meterRegistry);
+
+        return client;
+    }
+}
@@ -0,0 +1,19 @@
+package com.shipping.orderservice.http;
+
+/**
+ * Thrown without contacting the downstream service when its circuit breaker is open
+ * or its in-flight limit (bulkhead) is reached.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    private final String target;
+
+    public DownstreamUnavailableException(String target, String reason) {
+        super(target + " unavailable: " + reason);
+        this.target = target;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+}
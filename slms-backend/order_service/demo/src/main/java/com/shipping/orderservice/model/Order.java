@@ -50,8 +50,14 @@ public class Order {
     @Column(name = "actual_delivery_time")
     private LocalDateTime actualDeliveryTime;
 
-    @Column(name = "pod")
-    private byte[] pod; // Proof of Delivery (binary data - image/PDF)
+    @Column(name = "pod_ref")
+    private String podRef; // Proof of Delivery blob reference (SHA-256, see PodBlobStore)
+
+    @Column(name = "pod_normalized_ref")
+    private String podNormalizedRef; // Display-sized JPEG of the POD (see PodImageProcessor)
+
+    @Column(name = "pod_thumbnail_ref")
+    private String podThumbnailRef; // Thumbnail JPEG of the POD
 
     @Column(name = "error_message")
     private String errorMessage; // Error message for failed deliveries
@@ -90,8 +96,14 @@ public class Order {
     public LocalDateTime getActualDeliveryTime() { return actualDeliveryTime; }
     public void setActualDeliveryTime(LocalDateTime actualDeliveryTime) { this.actualDeliveryTime = actualDeliveryTime; }
 
-    public byte[] getPod() { return pod; }
-    public void setPod(byte[] pod) { this.pod = pod; }
+    public String getPodRef() { return podRef; }
+    public void setPodRef(String podRef) { this.podRef = podRef; }
+
+    public String getPodNormalizedRef() { return podNormalizedRef; }
+    public void setPodNormalizedRef(String podNormalizedRef) { this.podNormalizedRef = podNormalizedRef; }
+
+    public String getPodThumbnailRef() { return podThumbnailRef; }
+    public void setPodThumbnailRef(String podThumbnailRef) { this.podThumbnailRef = podThumbnailRef; }
 
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
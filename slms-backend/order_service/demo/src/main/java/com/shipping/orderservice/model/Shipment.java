@@ -1,5 +1,6 @@
 package com.shipping.orderservice.model;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -36,6 +37,22 @@ public class Shipment {
     @Enumerated(EnumType.STRING)
     private ShipmentStatus status;
 
+    // Maintained by triggers on "Orders"; read-only here
+    @Column(name = "order_count", insertable = false, updatable = false)
+    private int orderCount;
+
+    @Column(name = "pending_count", insertable = false, updatable = false)
+    private int pendingCount;
+
+    @Column(name = "in_transit_count", insertable = false, updatable = false)
+    private int inTransitCount;
+
+    @Column(name = "delivered_count", insertable = false, updatable = false)
+    private int deliveredCount;
+
+    @Column(name = "total_weight", insertable = false, updatable = false)
+    private BigDecimal totalWeight;
+
     // Getters and Setters
     public UUID getShipmentId() {
         return shipmentId;
@@ -85,6 +102,26 @@ public class Shipment {
         this.status = status;
     }
 
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public int getInTransitCount() {
+        return inTransitCount;
+    }
+
+    public int getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public BigDecimal getTotalWeight() {
+        return totalWeight;
+    }
+
     // Enum for shipment status
     public enum ShipmentStatus {
         Pending,
@@ -0,0 +1,192 @@
+package com.shipping.orderservice.repository;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Transactional outbox for order events ("OrderOutbox").
+ *
+ * Events are appended with the caller's JdbcTemplate, so inside a transaction they
+ * commit or roll back together with the "Orders" change. OrderOutboxRelay claims due
+ * events by leasing them (pushing next_attempt_at past the delivery time) in one short
+ * statement, delivers them without holding locks, then records delivery or retry state
+ * per event. An event whose relay dies mid-delivery becomes due again when the lease ends.
+ */
+@Repository
+public class OrderOutboxRepository {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_UPDATED = "ORDER_UPDATED";
+    public static final String ORDER_DELIVERED = "ORDER_DELIVERED";
+    public static final String ANOMALY_REPORTED = "ANOMALY_REPORTED";
+
+    private static final String INSERT_EVENT = """
+        INSERT INTO "OrderOutbox" (order_id, event_type, payload)
+        VALUES (?, ?, ?::jsonb)
+        """;
+
+    // Snapshot of the order before it is marked Delivered; run ahead of the UPDATE
+    private static final String INSERT_DELIVERED = """
+        INSERT INTO "OrderOutbox" (order_id, event_type, payload)
+        SELECT o.order_id, 'ORDER_DELIVERED',
+               jsonb_build_object('customerId', o.costumer_id, 'oldStatus', o.status)
+        FROM "Orders" o
+        WHERE o.order_id::text = ?
+        """;
+
+    // SKIP LOCKED keeps concurrent relays off each other's rows while the lease is taken
+    private static final String CLAIM_DUE = """
+        UPDATE "OrderOutbox" o
+        SET next_attempt_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 millisecond'
+        FROM (
+            SELECT id
+            FROM "OrderOutbox"
+            WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        ) due
+        WHERE o.id = due.id
+        RETURNING o.id, o.order_id, o.event_type, o.payload::text AS payload, o.attempts
+        """;
+
+    private static final String MARK_DELIVERED = """
+        UPDATE "OrderOutbox"
+        SET status = 'DELIVERED', attempts = attempts + 1, delivered_at = CURRENT_TIMESTAMP, last_error = NULL
+        WHERE id = ANY(?) AND status = 'PENDING'
+        """;
+
+    // Exponential backoff from the attempt count; the event is parked as FAILED after the last attempt
+    private static final String MARK_RETRY = """
+        UPDATE "OrderOutbox"
+        SET attempts = attempts + 1,
+            last_error = ?,
+            next_attempt_at = CURRENT_TIMESTAMP + LEAST(? * POWER(2, attempts), ?) * INTERVAL '1 millisecond',
+            status = CASE WHEN attempts + 1 >= ? THEN 'FAILED' ELSE 'PENDING' END
+        WHERE id = ANY(?) AND status = 'PENDING'
+        """;
+
+    private static final String SELECT_EXISTING_USERS = """
+        SELECT id FROM "Users" WHERE id = ANY(?)
+        """;
+
+    private static final String PURGE_DELIVERED = """
+        DELETE FROM "OrderOutbox"
+        WHERE status = 'DELIVERED' AND delivered_at < CURRENT_TIMESTAMP - ? * INTERVAL '1 day'
+        """;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderOutboxRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * A claimed outbox event
+     */
+    public record Event(long id, UUID orderId, String type, Map<String, Object> payload, int attempts) {
+    }
+
+    /**
+     * Append an event; call inside the transaction that changes the order
+     */
+    public void append(UUID orderId, String eventType, Map<String, Object> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + eventType + " payload for order " + orderId, e);
+        }
+        jdbcTemplate.update(INSERT_EVENT, orderId, eventType, json);
+    }
+
+    /**
+     * Append an ORDER_DELIVERED event carrying the order's current status.
+     * Must run before the UPDATE that marks the order Delivered, in the same transaction.
+     */
+    public void appendDelivered(String orderId) {
+        jdbcTemplate.update(INSERT_DELIVERED, orderId);
+    }
+
+    /**
+     * Lease up to limit due events for leaseMillis; the statement commits on its own,
+     * so no locks are held while the caller delivers them
+     *
+     * @return The leased events, oldest first
+     */
+    public List<Event> claimDue(int limit, long leaseMillis) {
+        List<Event> events = jdbcTemplate.query(CLAIM_DUE, (rs, rowNum) -> new Event(
+                rs.getLong("id"),
+                rs.getObject("order_id", UUID.class),
+                rs.getString("event_type"),
+                readPayload(rs.getString("payload")),
+                rs.getInt("attempts")), leaseMillis, limit);
+        // RETURNING does not keep the subquery's order
+        events.sort(Comparator.comparingLong(Event::id));
+        return events;
+    }
+
+    /**
+     * @return The given "Users" ids that still exist (notifications to any other id violate the FK)
+     */
+    public Set<UUID> existingUsers(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_EXISTING_USERS, UUID.class,
+                (Object) userIds.toArray(UUID[]::new)));
+    }
+
+    public void markDelivered(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(MARK_DELIVERED, (Object) ids.toArray(Long[]::new));
+    }
+
+    /**
+     * Schedule another attempt for the given events, or park them as FAILED once
+     * maxAttempts is reached
+     */
+    public void markRetry(List<Long> ids, String error, long backoffMillis, long maxBackoffMillis, int maxAttempts) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(MARK_RETRY, lastError, backoffMillis, maxBackoffMillis, maxAttempts,
+                (Object) ids.toArray(Long[]::new));
+    }
+
+    public int purgeDelivered(int retentionDays) {
+        return jdbcTemplate.update(PURGE_DELIVERED, retentionDays);
+    }
+
+    private Map<String, Object> readPayload(String json) {
+        if (json == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() { });
+        } catch (JsonProcessingException e) {
+            // Don't let one bad row block the queue; the relay retries it and eventually parks it
+            System.err.println("=== Corrupt outbox payload: " + json);
+            return Map.of();
+        }
+    }
+}
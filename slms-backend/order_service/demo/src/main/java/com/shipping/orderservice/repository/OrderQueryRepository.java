@@ -0,0 +1,402 @@
+package com.shipping.orderservice.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.shipping.orderservice.dto.OrderCursor;
+import com.shipping.orderservice.dto.OrderPage;
+import com.shipping.orderservice.dto.ShipmentWithOrdersDTO;
+import com.shipping.orderservice.dto.ShippingLabelData;
+import com.shipping.orderservice.model.Order;
+import com.shipping.orderservice.model.Shipment.ShipmentStatus;
+
+/**
+ * Read-side queries over "Orders" that need hand-written SQL (keyset pagination, filters, export, labels,
+ * driver manifests).
+ */
+@Repository
+public class OrderQueryRepository {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String SELECT_ORDERS = """
+        SELECT
+            o.order_id::text as "orderId",
+            o.costumer_id::text as "customerId",
+            TRIM(CONCAT(COALESCE(u.first_name, ''), ' ', COALESCE(u.last_name, ''))) as "customerName",
+            o.carrier_id::text as "carrierId",
+            o.shipment_id::text as "shipmentId",
+            o.origin_address as "originAddress",
+            o.destination_address as "destinationAddress",
+            o.weight as "weight",
+            o.status as "status",
+            o.order_date as "orderDate",
+            o.error_message as "errorMessage"
+        FROM "Orders" o
+        LEFT JOIN "Costumer" c ON o.costumer_id = c.user_id
+        LEFT JOIN "Users" u ON c.user_id = u.id
+        """;
+
+    // Plain columns (no POD) for bulk export; rows are streamed, never collected
+    private static final String SELECT_EXPORT = """
+        SELECT
+            o.order_id::text as "orderId",
+            o.costumer_id::text as "customerId",
+            o.carrier_id::text as "carrierId",
+            o.shipment_id::text as "shipmentId",
+            o.tracking_id as "trackingId",
+            o.origin_address as "originAddress",
+            o.destination_address as "destinationAddress",
+            o.weight as "weight",
+            o.status as "status",
+            o.order_date as "orderDate",
+            o.actual_delivery_time as "actualDeliveryTime",
+            o.error_message as "errorMessage"
+        FROM "Orders" o
+        """;
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    // Label fields plus carrier name in one pass; POD is never loaded
+    private static final String SELECT_LABELS = """
+        SELECT
+            o.order_id,
+            o.costumer_id,
+            o.carrier_id,
+            o.shipment_id,
+            o.origin_address,
+            o.destination_address,
+            o.weight,
+            o.status,
+            o.order_date,
+            o.tracking_id,
+            COALESCE(c.name, 'Unknown') as carrier_name
+        FROM "Orders" o
+        LEFT JOIN "Carrier" c ON o.carrier_id = c.carrier_id
+        """;
+
+    private static final RowMapper<ShippingLabelData> LABEL_ROW_MAPPER = (rs, rowNum) -> {
+        Order order = new Order();
+        order.setOrderId(rs.getObject("order_id", UUID.class));
+        order.setCustomerId(rs.getObject("costumer_id", UUID.class));
+        order.setCarrierId(rs.getObject("carrier_id", UUID.class));
+        order.setShipmentId(rs.getObject("shipment_id", UUID.class));
+        order.setOriginAddress(rs.getString("origin_address"));
+        order.setDestinationAddress(rs.getString("destination_address"));
+        order.setWeight(rs.getFloat("weight"));
+        order.setStatus(rs.getString("status"));
+        Timestamp orderDate = rs.getTimestamp("order_date");
+        order.setOrderDate(orderDate != null ? orderDate.toLocalDateTime() : null);
+        order.setTrackingId(rs.getString("tracking_id"));
+        return new ShippingLabelData(order, rs.getString("carrier_name"));
+    };
+
+    // A driver's shipments with their orders in one pass (LEFT JOIN keeps empty shipments);
+    // rows come grouped by shipment. POD bytes are never loaded, only the blob refs
+    private static final String SELECT_DRIVER_MANIFEST = """
+        SELECT
+            s.shipment_id,
+            s.carrier_id as shipment_carrier_id,
+            s.driver_id,
+            s.departure_time,
+            s.arrival_time,
+            s.status as shipment_status,
+            o.order_id,
+            o.costumer_id,
+            o.carrier_id,
+            o.origin_address,
+            o.destination_address,
+            o.weight,
+            o.status,
+            o.order_date,
+            o.tracking_id,
+            o.actual_delivery_time,
+            o.pod_ref,
+            o.pod_normalized_ref,
+            o.pod_thumbnail_ref,
+            o.error_message
+        FROM "Shipments" s
+        LEFT JOIN "Orders" o ON o.shipment_id = s.shipment_id
+        WHERE s.driver_id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderQueryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fetch one page of orders, newest first.
+     * Uses an (order_date, order_id) keyset so every page is an index range scan
+     * on idx_orders_date_id (or the status/carrier variants when filtered),
+     * regardless of how deep the client has paged.
+     *
+     * @param cursor Position after which to start (null for the first page)
+     * @param pageSize Number of rows to return (clamped to MAX_PAGE_SIZE)
+     * @param status Optional status filter
+     * @param carrierId Optional carrier filter
+     * @param from Optional inclusive lower bound on order_date
+     * @param to Optional exclusive upper bound on order_date
+     * @return The page and the cursor for the next one
+     */
+    public OrderPage findPage(OrderCursor cursor, int pageSize, String status, UUID carrierId,
+                              OffsetDateTime from, OffsetDateTime to) {
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        StringBuilder sql = new StringBuilder(SELECT_ORDERS);
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = filters(params, status, carrierId, from, to);
+
+        if (cursor != null && cursor.getOrderDate() != null) {
+            // Orders without a date sort first, so they were all on earlier pages
+            conditions.add("(o.order_date, o.order_id) < (?, ?)");
+            params.add(OffsetDateTime.ofInstant(cursor.getOrderDate(), ZoneOffset.UTC));
+            params.add(cursor.getOrderId());
+        } else if (cursor != null) {
+            conditions.add("(o.order_date IS NOT NULL OR o.order_id < ?)");
+            params.add(cursor.getOrderId());
+        }
+        appendWhere(sql, conditions);
+
+        // Fetch one extra row to know whether another page exists.
+        // DESC puts NULL order dates first, matching the index order.
+        sql.append("ORDER BY o.order_date DESC, o.order_id DESC\n");
+        sql.append("LIMIT ?");
+        params.add(limit + 1);
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql.toString(), params.toArray());
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            Map<String, Object> last = rows.get(limit - 1);
+            nextCursor = new OrderCursor(
+                toInstant(last.get("orderDate")),
+                UUID.fromString((String) last.get("orderId"))
+            ).encode();
+        }
+
+        return new OrderPage(rows, nextCursor);
+    }
+
+    /**
+     * Fetch every order matching the filters in one list, in the same order as findPage.
+     * Kept for external clients that predate paging and ask for neither a cursor nor a limit.
+     */
+    public List<Map<String, Object>> findAll(String status, UUID carrierId, OffsetDateTime from, OffsetDateTime to) {
+        StringBuilder sql = new StringBuilder(SELECT_ORDERS);
+        List<Object> params = new ArrayList<>();
+        appendWhere(sql, filters(params, status, carrierId, from, to));
+        sql.append("ORDER BY o.order_date DESC, o.order_id DESC");
+        return jdbcTemplate.queryForList(sql.toString(), params.toArray());
+    }
+
+    /**
+     * Fetch one order in the same shape as the listing
+     *
+     * @return The order, or null if there is none with that ID
+     */
+    public Map<String, Object> findOne(UUID orderId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SELECT_ORDERS + "WHERE o.order_id = ?", orderId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Count orders per status (statuses without orders are absent)
+     */
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) AS orders FROM \"Orders\" GROUP BY status ORDER BY status",
+                (RowCallbackHandler) rs -> counts.put(rs.getString("status"), rs.getLong("orders")));
+        return counts;
+    }
+
+    /**
+     * Stream every order matching the filters through a server-side cursor.
+     * Runs on a dedicated connection with autocommit off and a bounded fetch size,
+     * so the PostgreSQL driver pulls rows in batches instead of materializing the
+     * whole result; the handler sees one row at a time.
+     *
+     * @param status Optional status filter
+     * @param carrierId Optional carrier filter
+     * @param from Optional inclusive lower bound on order_date
+     * @param to Optional exclusive upper bound on order_date
+     * @param handler Callback invoked for each row, in (order_date, order_id) descending order
+     */
+    public void streamOrders(String status, UUID carrierId, OffsetDateTime from, OffsetDateTime to,
+                             RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(SELECT_EXPORT);
+        List<Object> params = new ArrayList<>();
+        appendWhere(sql, filters(params, status, carrierId, from, to));
+        sql.append("ORDER BY o.order_date DESC, o.order_id DESC");
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.processRow(rs);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Load label data for every order of a shipment in a single query
+     */
+    public List<ShippingLabelData> findLabelsByShipment(UUID shipmentId) {
+        String sql = SELECT_LABELS + """
+            WHERE o.shipment_id = ?
+            ORDER BY o.order_date, o.order_id
+            """;
+        return jdbcTemplate.query(sql, LABEL_ROW_MAPPER, shipmentId);
+    }
+
+    /**
+     * Load label data for every order of a carrier placed in [from, to) in a single query
+     */
+    public List<ShippingLabelData> findLabelsByCarrier(UUID carrierId, OffsetDateTime from, OffsetDateTime to) {
+        String sql = SELECT_LABELS + """
+            WHERE o.carrier_id = ?
+            AND o.order_date >= ?
+            AND o.order_date < ?
+            ORDER BY o.order_date, o.order_id
+            """;
+        return jdbcTemplate.query(sql, LABEL_ROW_MAPPER, carrierId, from, to);
+    }
+
+    /**
+     * Load a driver's shipments and all of their orders with a single query, grouped
+     * in memory, newest departure first (same order as findAllShipmentsByKeycloakId).
+     *
+     * @param driverId The driver (see IdentityResolver for the JWT sub → driver_id step)
+     * @param status Optional shipment status filter
+     */
+    public List<ShipmentWithOrdersDTO> findDriverManifest(UUID driverId, ShipmentStatus status) {
+        StringBuilder sql = new StringBuilder(SELECT_DRIVER_MANIFEST);
+        List<Object> params = new ArrayList<>();
+        params.add(driverId);
+        if (status != null) {
+            sql.append("AND s.status = ?\n");
+            params.add(status.name());
+        }
+        sql.append("ORDER BY s.departure_time DESC, s.shipment_id, o.order_date, o.order_id");
+
+        Map<UUID, ShipmentWithOrdersDTO> manifest = new LinkedHashMap<>();
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+            UUID shipmentId = rs.getObject("shipment_id", UUID.class);
+            ShipmentWithOrdersDTO shipment = manifest.get(shipmentId);
+            if (shipment == null) {
+                shipment = new ShipmentWithOrdersDTO();
+                shipment.setShipmentId(shipmentId);
+                shipment.setCarrierId(rs.getObject("shipment_carrier_id", UUID.class));
+                shipment.setDriverId(rs.getObject("driver_id", UUID.class));
+                shipment.setDepartureTime(toLocalDateTime(rs.getTimestamp("departure_time")));
+                shipment.setArrivalTime(toLocalDateTime(rs.getTimestamp("arrival_time")));
+                shipment.setStatus(rs.getString("shipment_status"));
+                shipment.setOrders(new ArrayList<>());
+                manifest.put(shipmentId, shipment);
+            }
+
+            UUID orderId = rs.getObject("order_id", UUID.class);
+            if (orderId != null) {
+                Order order = new Order();
+                order.setOrderId(orderId);
+                order.setShipmentId(shipmentId);
+                order.setCustomerId(rs.getObject("costumer_id", UUID.class));
+                order.setCarrierId(rs.getObject("carrier_id", UUID.class));
+                order.setOriginAddress(rs.getString("origin_address"));
+                order.setDestinationAddress(rs.getString("destination_address"));
+                order.setWeight(rs.getFloat("weight"));
+                order.setStatus(rs.getString("status"));
+                order.setOrderDate(toLocalDateTime(rs.getTimestamp("order_date")));
+                order.setTrackingId(rs.getString("tracking_id"));
+                order.setActualDeliveryTime(toLocalDateTime(rs.getTimestamp("actual_delivery_time")));
+                order.setPodRef(rs.getString("pod_ref"));
+                order.setPodNormalizedRef(rs.getString("pod_normalized_ref"));
+                order.setPodThumbnailRef(rs.getString("pod_thumbnail_ref"));
+                order.setErrorMessage(rs.getString("error_message"));
+                shipment.getOrders().add(order);
+            }
+        }, params.toArray());
+
+        return new ArrayList<>(manifest.values());
+    }
+
+    private static List<String> filters(List<Object> params, String status, UUID carrierId,
+                                        OffsetDateTime from, OffsetDateTime to) {
+        List<String> conditions = new ArrayList<>();
+        if (status != null && !status.isBlank()) {
+            conditions.add("o.status = ?");
+            params.add(status);
+        }
+        if (carrierId != null) {
+            conditions.add("o.carrier_id = ?");
+            params.add(carrierId);
+        }
+        if (from != null) {
+            conditions.add("o.order_date >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            conditions.add("o.order_date < ?");
+            params.add(to);
+        }
+        return conditions;
+    }
+
+    private static void appendWhere(StringBuilder sql, List<String> conditions) {
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join("\nAND ", conditions)).append('\n');
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        return Instant.parse(value.toString());
+    }
+}
@@ -38,7 +38,7 @@ public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
      * Find shipments currently "InTransit" for a driver, identified by the keycloak_id (from JWT).
      * Navigation: keycloakId (JWT sub) → Users.keycloak_id → Users.id → Driver.user_id → Driver.driver_id → Shipments.driver_id
      * 
-     * @param keycloakId The keycloak_id (which comes from JWT sub claim)
+     * @param keycloakId The keycloak_id (which comes from JWT sub claim), bound as uuid so idx_users_keycloak_id applies
      * @return List of InTransit shipments for the driver associated with this user
      */
     @Query(value = """
@@ -46,17 +46,17 @@ public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
         FROM "Shipments" s
         INNER JOIN "Driver" d ON s.driver_id = d.driver_id
         INNER JOIN "Users" u ON d.user_id = u.id
-        WHERE u.keycloak_id::text = :keycloakId
+        WHERE u.keycloak_id = :keycloakId
         AND s.status = 'InTransit'
         ORDER BY s.departure_time DESC
         """, nativeQuery = true)
-    List<Shipment> findInTransitShipmentsByKeycloakId(@Param("keycloakId") String keycloakId);
+    List<Shipment> findInTransitShipmentsByKeycloakId(@Param("keycloakId") UUID keycloakId);
     
     /**
      * Find ALL shipments for a user (not filtered by status)
      * Navigation: keycloakId (JWT sub) → Users.keycloak_id → Users.id → Driver.user_id → Driver.driver_id → Shipments.driver_id
      * 
-     * @param keycloakId The keycloak_id (which comes from JWT sub claim)
+     * @param keycloakId The keycloak_id (which comes from JWT sub claim), bound as uuid so idx_users_keycloak_id applies
      * @return List of all shipments for the driver associated with this user
      */
     @Query(value = """
@@ -64,8 +64,8 @@ public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
         FROM "Shipments" s
         INNER JOIN "Driver" d ON s.driver_id = d.driver_id
         INNER JOIN "Users" u ON d.user_id = u.id
-        WHERE u.keycloak_id::text = :keycloakId
+        WHERE u.keycloak_id = :keycloakId
         ORDER BY s.departure_time DESC
         """, nativeQuery = true)
-    List<Shipment> findAllShipmentsByKeycloakId(@Param("keycloakId") String keycloakId);
+    List<Shipment> findAllShipmentsByKeycloakId(@Param("keycloakId") UUID keycloakId);
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.shipping.orderservice.service;
+
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.zxing.common.BitMatrix;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.properties.AreaBreakType;
+import com.shipping.orderservice.dto.ShippingLabelData;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Renders many shipping labels into one multi-page PDF.
+ *
+ * QR codes are encoded on a bounded worker pool, at most a small window ahead of the
+ * page currently being laid out, while the PDF itself is written sequentially to the
+ * response stream; with immediate flush, finished pages leave the server as soon as
+ * the next one starts.
+ */
+@Service
+public class BulkLabelService {
+
+    private final ShippingDocumentRenderer documentRenderer;
+    private final ExecutorService qrExecutor;
+    private final int window;
+
+    public BulkLabelService(
+            ShippingDocumentRenderer documentRenderer,
+            @Value("${labels.render.threads:4}") int threads) {
+        this.documentRenderer = documentRenderer;
+        AtomicInteger counter = new AtomicInteger();
+        this.qrExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "label-qr-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.window = threads * 2;
+    }
+
+    /**
+     * Write one label page per entry to the output stream
+     *
+     * @param labels Labels in print order
+     * @param out Response stream; left open
+     */
+    public void writeLabels(List<ShippingLabelData> labels, OutputStream out) throws Exception {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        Document document = new Document(pdf);
+
+        Iterator<ShippingLabelData> pending = labels.iterator();
+        Deque<Future<BitMatrix>> inFlight = new ArrayDeque<>();
+        ShippingLabelData current = null;
+        boolean completed = false;
+        try {
+            // Prime the window, then keep it full as pages are written
+            while (inFlight.size() < window && pending.hasNext()) {
+                inFlight.add(submitQr(pending.next()));
+            }
+
+            boolean first = true;
+            for (ShippingLabelData label : labels) {
+                current = label;
+                BitMatrix qrMatrix = inFlight.removeFirst().get();
+                if (pending.hasNext()) {
+                    inFlight.add(submitQr(pending.next()));
+                }
+
+                if (!first) {
+                    document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+                }
+                documentRenderer.addShippingLabel(document, label.getOrder(), label.getCarrierName(), qrMatrix);
+                first = false;
+            }
+            completed = true;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            for (Future<BitMatrix> future : inFlight) {
+                future.cancel(true);
+            }
+            if (completed) {
+                document.close();
+            } else {
+                System.err.println("=== Shipping label failed for order "
+                        + (current != null ? current.getOrder().getOrderId() : null)
+                        + "; abandoning the PDF of " + labels.size() + " labels");
+                closeAfterFailure(document);
+            }
+        }
+
+        System.out.println("=== Rendered " + labels.size() + " shipping labels");
+    }
+
+    /**
+     * Release the document (and its PdfDocument and writer) without hiding the
+     * original failure; the response stream itself stays open
+     */
+    private void closeAfterFailure(Document document) {
+        try {
+            document.close();
+        } catch (RuntimeException e) {
+            System.err.println("=== Could not close abandoned label PDF: " + e.getMessage());
+        }
+    }
+
+    private Future<BitMatrix> submitQr(ShippingLabelData label) {
+        return qrExecutor.submit(() -> documentRenderer.encodeTrackingQr(label.getOrder()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        qrExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package com.shipping.orderservice.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reference-data cache for "Carrier" (id and display name only; metrics stay in the
+ * carrier service).
+ *
+ * Readers see an immutable snapshot that a background thread replaces every
+ * carriers.cache.refresh-ms; the version number only goes up when the contents
+ * change. A lookup for an id missing from the snapshot (a carrier created since the
+ * last refresh) reloads it once before answering, unless the table was loaded less
+ * than carriers.cache.miss-reload-min-ms ago: carrier ids come from clients, so
+ * unknown ids must not turn into one full reload each.
+ *
+ * Metrics: carriers.cache.size, carriers.cache.version.
+ */
+@Service
+public class CarrierCache {
+
+    private static final String SELECT_CARRIERS = "SELECT carrier_id, name FROM \"Carrier\"";
+
+    /**
+     * One immutable view of the carrier table
+     */
+    public record Snapshot(long version, Map<UUID, String> names) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshMs;
+    private final long missReloadMinMs;
+    private final Thread worker;
+    private volatile Snapshot snapshot;
+    // When the table was last read (guarded by this)
+    private long loadedAt;
+    private volatile boolean running = true;
+
+    public CarrierCache(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                        @Value("${carriers.cache.refresh-ms:60000}") long refreshMs,
+                        @Value("${carriers.cache.miss-reload-min-ms:1000}") long missReloadMinMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshMs = refreshMs;
+        this.missReloadMinMs = missReloadMinMs;
+
+        Gauge.builder("carriers.cache.size", this, c -> c.snapshot != null ? c.snapshot.names().size() : 0)
+                .register(meterRegistry);
+        Gauge.builder("carriers.cache.version", this, c -> c.snapshot != null ? c.snapshot.version() : 0)
+                .register(meterRegistry);
+
+        this.worker = new Thread(this::run, "carrier-cache");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Display name of a carrier, or null if there is no such carrier
+     */
+    public String name(UUID carrierId) {
+        if (carrierId == null) {
+            return null;
+        }
+        Snapshot current = current();
+        String name = current.names().get(carrierId);
+        if (name == null) {
+            name = refreshOnMiss().names().get(carrierId);
+        }
+        return name;
+    }
+
+    public boolean exists(UUID carrierId) {
+        if (carrierId == null) {
+            return false;
+        }
+        return current().names().containsKey(carrierId) || refreshOnMiss().names().containsKey(carrierId);
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Reload the table and swap the snapshot in if anything changed
+     */
+    public synchronized Snapshot refresh() {
+        Map<UUID, String> names = new HashMap<>();
+        jdbcTemplate.query(SELECT_CARRIERS, (RowCallbackHandler) rs ->
+                names.put(rs.getObject("carrier_id", UUID.class), rs.getString("name")));
+        loadedAt = System.currentTimeMillis();
+
+        Snapshot current = snapshot;
+        if (current != null && current.names().equals(names)) {
+            return current;
+        }
+        Snapshot next = new Snapshot(current != null ? current.version() + 1 : 1, Map.copyOf(names));
+        snapshot = next;
+        return next;
+    }
+
+    /**
+     * Reload for an id missing from the snapshot; concurrent misses share one reload
+     * and the table is read at most once per carriers.cache.miss-reload-min-ms
+     */
+    private synchronized Snapshot refreshOnMiss() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - loadedAt < missReloadMinMs) {
+            return current;
+        }
+        return refresh();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.err.println("=== Carrier cache refresh failed: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(refreshMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(2000);
+    }
+}
@@ -0,0 +1,348 @@
+package com.shipping.orderservice.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.shipping.orderservice.model.Order;
+
+/**
+ * Content-addressed cache for rendered order documents (packing slips, shipping labels).
+ *
+ * The key is a SHA-256 of everything that goes into the document (document type,
+ * layout version, order fields and carrier name), so a key can never point at a stale
+ * rendering; the same hash doubles as the strong ETag sent to clients.
+ * Documents are kept in a byte-bounded in-memory LRU, with an optional directory
+ * used as a second tier that survives restarts. The directory is an LRU of its own,
+ * bounded by documents.cache.disk-max-bytes; files found there at startup are
+ * adopted oldest first and age out like any other entry. A key is remembered for
+ * its order only while one of the tiers holds the document.
+ */
+@Service
+public class DocumentCache {
+
+    public enum DocumentType {
+        PACKING_SLIP,
+        SHIPPING_LABEL
+    }
+
+    @FunctionalInterface
+    public interface Renderer {
+        byte[] render() throws Exception;
+    }
+
+    private static final class Entry {
+        private final UUID orderId;
+        private final byte[] data;
+
+        Entry(UUID orderId, byte[] data) {
+            this.orderId = orderId;
+            this.data = data;
+        }
+    }
+
+    private static final class DiskEntry {
+        // Null for files adopted at startup until they are first read
+        private UUID orderId;
+        private final long size;
+
+        DiskEntry(UUID orderId, long size) {
+            this.orderId = orderId;
+            this.size = size;
+        }
+    }
+
+    private record StoredFile(String key, long size, long modified) {}
+
+    private final long maxBytes;
+    private final long diskMaxBytes;
+    private final Path diskDir;
+
+    // Access-ordered maps: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes = 0;
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskBytes = 0;
+
+    // Keys cached per order, so an order change can drop all its documents
+    private final Map<UUID, Set<String>> keysByOrder = new ConcurrentHashMap<>();
+
+    public DocumentCache(
+            @Value("${documents.cache.max-bytes:33554432}") long maxBytes,
+            @Value("${documents.cache.disk-max-bytes:268435456}") long diskMaxBytes,
+            @Value("${documents.cache.dir:}") String diskDir) throws IOException {
+        this.maxBytes = maxBytes;
+        this.diskMaxBytes = diskMaxBytes;
+        if (diskDir != null && !diskDir.isBlank()) {
+            this.diskDir = Path.of(diskDir);
+            Files.createDirectories(this.diskDir);
+            loadDiskIndex();
+        } else {
+            this.diskDir = null;
+        }
+    }
+
+    /**
+     * Compute the content address of a document
+     */
+    public String key(DocumentType type, Order order, String carrierName) {
+        String canonical = String.join("\u001f",
+                type.name(),
+                String.valueOf(ShippingDocumentRenderer.LAYOUT_VERSION),
+                String.valueOf(order.getOrderId()),
+                String.valueOf(order.getOrderDate()),
+                String.valueOf(order.getStatus()),
+                String.valueOf(order.getOriginAddress()),
+                String.valueOf(order.getDestinationAddress()),
+                String.valueOf(order.getWeight()),
+                String.valueOf(order.getCustomerId()),
+                String.valueOf(carrierName));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Strong ETag value for a key
+     */
+    public static String etag(String key) {
+        return "\"" + key + "\"";
+    }
+
+    /**
+     * Return the cached document for the key, rendering and storing it on a miss
+     */
+    public byte[] getOrRender(UUID orderId, String key, Renderer renderer) throws Exception {
+        byte[] cached = getFromMemory(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        cached = getFromDisk(orderId, key);
+        if (cached != null) {
+            putInMemory(orderId, key, cached);
+            return cached;
+        }
+
+        byte[] rendered = renderer.render();
+        putInMemory(orderId, key, rendered);
+        putOnDisk(orderId, key, rendered);
+        return rendered;
+    }
+
+    /**
+     * Drop every cached document of an order (call after the order changes)
+     */
+    public void invalidateOrder(UUID orderId) {
+        Set<String> keys;
+        synchronized (this) {
+            keys = keysByOrder.remove(orderId);
+            if (keys == null) {
+                return;
+            }
+            for (String key : keys) {
+                Entry removed = memory.remove(key);
+                if (removed != null) {
+                    memoryBytes -= removed.data.length;
+                }
+                DiskEntry removedFromDisk = disk.remove(key);
+                if (removedFromDisk != null) {
+                    diskBytes -= removedFromDisk.size;
+                }
+            }
+        }
+        if (diskDir != null) {
+            deleteFromDisk(keys);
+        }
+    }
+
+    private synchronized byte[] getFromMemory(String key) {
+        Entry entry = memory.get(key);
+        return entry != null ? entry.data : null;
+    }
+
+    private void putInMemory(UUID orderId, String key, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+
+        synchronized (this) {
+            Entry previous = memory.put(key, new Entry(orderId, data));
+            if (previous != null) {
+                memoryBytes -= previous.data.length;
+            }
+            memoryBytes += data.length;
+            rememberKey(orderId, key);
+
+            Iterator<Map.Entry<String, Entry>> lru = memory.entrySet().iterator();
+            while (memoryBytes > maxBytes && lru.hasNext()) {
+                Map.Entry<String, Entry> eldest = lru.next();
+                lru.remove();
+                memoryBytes -= eldest.getValue().data.length;
+                if (!disk.containsKey(eldest.getKey())) {
+                    forgetKey(eldest.getValue().orderId, eldest.getKey());
+                }
+            }
+        }
+    }
+
+    private void rememberKey(UUID orderId, String key) {
+        keysByOrder.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void forgetKey(UUID orderId, String key) {
+        if (orderId == null) {
+            return;
+        }
+        keysByOrder.computeIfPresent(orderId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private byte[] getFromDisk(UUID orderId, String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        synchronized (this) {
+            DiskEntry entry = disk.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.orderId == null) {
+                entry.orderId = orderId;
+                rememberKey(orderId, key);
+            }
+        }
+        try {
+            return Files.readAllBytes(diskPath(key));
+        } catch (IOException e) {
+            System.err.println("Could not read cached document " + key + ": " + e.getMessage());
+            synchronized (this) {
+                DiskEntry removed = disk.remove(key);
+                if (removed != null) {
+                    diskBytes -= removed.size;
+                    if (!memory.containsKey(key)) {
+                        forgetKey(removed.orderId, key);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private void putOnDisk(UUID orderId, String key, byte[] data) {
+        if (diskDir == null || data.length > diskMaxBytes) {
+            return;
+        }
+        try {
+            Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, diskPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write cached document " + key + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            DiskEntry previous = disk.put(key, new DiskEntry(orderId, data.length));
+            if (previous != null) {
+                diskBytes -= previous.size;
+            }
+            diskBytes += data.length;
+            rememberKey(orderId, key);
+            evicted.addAll(trimDisk());
+        }
+        deleteFromDisk(evicted);
+    }
+
+    /**
+     * Drop least recently used files from the index until the disk tier fits its budget
+     *
+     * @return The keys whose files must be deleted
+     */
+    private synchronized List<String> trimDisk() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, DiskEntry>> lru = disk.entrySet().iterator();
+        while (diskBytes > diskMaxBytes && lru.hasNext()) {
+            Map.Entry<String, DiskEntry> eldest = lru.next();
+            lru.remove();
+            diskBytes -= eldest.getValue().size;
+            evicted.add(eldest.getKey());
+            if (!memory.containsKey(eldest.getKey())) {
+                forgetKey(eldest.getValue().orderId, eldest.getKey());
+            }
+        }
+        return evicted;
+    }
+
+    private void deleteFromDisk(Iterable<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(diskPath(key));
+            } catch (IOException e) {
+                System.err.println("Could not delete cached document " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adopt the documents left in the directory by a previous run, oldest first, and
+     * remove temp files of writes that never finished
+     */
+    private void loadDiskIndex() throws IOException {
+        List<StoredFile> stored = new ArrayList<>();
+        try (Stream<Path> files = Files.list(diskDir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(".pdf")) {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    stored.add(new StoredFile(name.substring(0, name.length() - ".pdf".length()),
+                            attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        stored.sort(Comparator.comparingLong(StoredFile::modified));
+
+        List<String> evicted;
+        synchronized (this) {
+            for (StoredFile file : stored) {
+                disk.put(file.key(), new DiskEntry(null, file.size()));
+                diskBytes += file.size();
+            }
+            evicted = trimDisk();
+        }
+        deleteFromDisk(evicted);
+        System.out.println("=== Document cache: adopted " + (stored.size() - evicted.size())
+                + " files (" + diskBytes + " bytes) from " + diskDir);
+    }
+
+    private Path diskPath(String key) {
+        return diskDir.resolve(key + ".pdf");
+    }
+}
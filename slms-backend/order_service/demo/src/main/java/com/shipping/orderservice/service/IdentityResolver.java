@@ -0,0 +1,121 @@
+package com.shipping.orderservice.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Maps a JWT sub (the keycloak_id) to the ids the order tables are keyed by:
+ * "Users".id, "Driver".driver_id and the customer id ("Costumer".user_id).
+ *
+ * The lookup binds the sub as a uuid, so it is a unique-index probe on
+ * users_keycloak_id_key instead of a scan of "Users" cast to text; callers then
+ * query "Orders" and "Shipments" by their foreign-key indexes. Results are kept in a
+ * bounded LRU for identity.cache.ttl-seconds. The keycloak_id → users.id mapping
+ * never changes, but a role row (e.g. "Driver") can appear after the first sync,
+ * hence the TTL. Unknown subs are not cached. Hits and misses are exported as the
+ * order.identity.cache counter.
+ */
+@Service
+public class IdentityResolver {
+
+    private static final String SELECT_IDENTITY = """
+        SELECT u.id, d.driver_id, c.user_id as customer_id
+        FROM "Users" u
+        LEFT JOIN "Driver" d ON d.user_id = u.id
+        LEFT JOIN "Costumer" c ON c.user_id = u.id
+        WHERE u.keycloak_id = ?
+        """;
+
+    /**
+     * Ids of one keycloak user; driverId and customerId are null when the user has no such role
+     */
+    public record Identity(UUID userId, UUID driverId, UUID customerId) {}
+
+    private record Entry(Identity identity, long expiresAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public IdentityResolver(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${identity.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${identity.cache.max-entries:10000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("order.identity.cache", "result", "hit");
+        this.misses = meterRegistry.counter("order.identity.cache", "result", "miss");
+    }
+
+    /**
+     * @param keycloakId The JWT sub
+     * @return The user's ids, or null if the sub is not a UUID or no user has it
+     */
+    public Identity resolve(String keycloakId) {
+        UUID sub;
+        try {
+            sub = UUID.fromString(keycloakId.trim());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+
+        Entry entry = get(sub);
+        if (entry != null) {
+            hits.increment();
+            return entry.identity();
+        }
+        misses.increment();
+
+        List<Identity> rows = jdbcTemplate.query(SELECT_IDENTITY, (rs, rowNum) -> new Identity(
+                rs.getObject("id", UUID.class),
+                rs.getObject("driver_id", UUID.class),
+                rs.getObject("customer_id", UUID.class)), sub);
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        Identity identity = rows.get(0);
+        put(sub, identity);
+        return identity;
+    }
+
+    private synchronized Entry get(UUID sub) {
+        Entry entry = entries.get(sub);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(sub);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(UUID sub, Identity identity) {
+        entries.put(sub, new Entry(identity, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<UUID, Entry>> lru = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.shipping.orderservice.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.shipping.orderservice.http.DownstreamClient;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Delivers batches of notifications to the notification service with one
+ * POST /api/notifications/batch each.
+ *
+ * Only the order outbox relay calls this, from its own worker thread, so request
+ * threads never wait on the notification service and nothing is lost when it is
+ * down: a failed batch is thrown back and the outbox retries its events.
+ *
+ * Requests go through the pooled notificationServiceClient (timeouts, bulkhead and
+ * circuit breaker).
+ *
+ * Metrics: notification.dispatch.batch.size and notification.dispatch.send (latency
+ * per batch).
+ */
+@Service
+public class NotificationDispatcher {
+
+    private final DownstreamClient notificationServiceClient;
+
+    private final DistributionSummary batchSizes;
+    private final Timer sendTimer;
+
+    public NotificationDispatcher(DownstreamClient notificationServiceClient, MeterRegistry meterRegistry) {
+        this.notificationServiceClient = notificationServiceClient;
+        this.batchSizes = meterRegistry.summary("notification.dispatch.batch.size");
+        this.sendTimer = meterRegistry.timer("notification.dispatch.send");
+    }
+
+    /**
+     * Deliver a batch synchronously on the calling thread; failures are thrown to the caller
+     */
+    public void deliverNow(List<Map<String, Object>> batch) {
+        batchSizes.record(batch.size());
+        sendTimer.record(() -> notificationServiceClient.post("/api/notifications/batch", batch, List.class));
+    }
+}
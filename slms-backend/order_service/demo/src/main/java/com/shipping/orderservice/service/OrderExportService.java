@@ -0,0 +1,171 @@
+package com.shipping.orderservice.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipping.orderservice.repository.OrderQueryRepository;
+
+/**
+ * Streams order exports (NDJSON or CSV) straight from the JDBC cursor to the client.
+ * Each row is written as soon as it is read, so memory use does not grow with the
+ * number of exported orders and the first bytes leave before the query finishes.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    // Flush early so the client starts receiving data, then periodically
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportService(OrderQueryRepository orderQueryRepository, ObjectMapper objectMapper) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write all orders matching the filters to the given stream
+     *
+     * @param format NDJSON (one JSON object per line) or CSV (with header row)
+     * @param out Response stream; not closed by this method
+     */
+    public void export(Format format, String status, UUID carrierId, OffsetDateTime from, OffsetDateTime to,
+                       OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        try {
+            int[] rowCount = {0};
+            orderQueryRepository.streamOrders(status, carrierId, from, to, rs -> {
+                try {
+                    rowWriter.write(rs);
+                    rowCount[0]++;
+                    if (rowCount[0] == 1 || rowCount[0] % FLUSH_EVERY_ROWS == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            System.out.println("=== Exported " + rowCount[0] + " orders as " + format);
+        } catch (UncheckedIOException e) {
+            // Client disconnected mid-export; the cursor has already been closed
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            ResultSetMetaData meta = rs.getMetaData();
+            generator.writeStartObject();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                generator.writeFieldName(meta.getColumnLabel(i));
+                generator.writeObject(toExportValue(rs.getObject(i)));
+            }
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private boolean headerWritten = false;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+
+            if (!headerWritten) {
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(escape(meta.getColumnLabel(i)));
+                }
+                writer.write("\r\n");
+                headerWritten = true;
+            }
+
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = toExportValue(rs.getObject(i));
+                if (value != null) {
+                    writer.write(escape(value.toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        /**
+         * RFC 4180 quoting: wrap in quotes when the value contains a separator,
+         * quote or line break, doubling embedded quotes
+         */
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /**
+     * Normalize JDBC values to what both formats should print (ISO-8601 timestamps)
+     */
+    private static Object toExportValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant().toString();
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant().toString();
+        }
+        return value;
+    }
+}
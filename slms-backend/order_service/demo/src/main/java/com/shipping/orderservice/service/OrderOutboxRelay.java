@@ -0,0 +1,383 @@
+package com.shipping.orderservice.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import com.shipping.orderservice.repository.OrderOutboxRepository;
+import com.shipping.orderservice.repository.OrderOutboxRepository.Event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers "OrderOutbox" events to the notification service.
+ *
+ * One background thread leases up to order.outbox.batch-size due events for
+ * order.outbox.lease-ms (SKIP LOCKED, so several order-service instances can relay
+ * side by side) and turns them into notifications, resolving names here rather than on
+ * the API path (role recipients come from RoleDirectory). Notifications without a
+ * recipient, or for a user that no longer exists, are dropped. The rest are sent with
+ * POST /api/notifications/batch, several events per request, outside any transaction.
+ *
+ * Each event is acknowledged on its own: if the notification service rejects a
+ * request holding several events, they are re-sent one event per request, so a bad
+ * event only delays itself. Failed events are scheduled for retry with exponential
+ * backoff; after order.outbox.max-attempts an event is parked as FAILED. Delivery is
+ * at-least-once.
+ *
+ * Metrics: order.outbox.events (result=delivered|retry).
+ */
+@Service
+@ConditionalOnProperty(name = "order.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderOutboxRelay {
+
+    private static final String CUSTOMER_NAME_SQL = """
+        SELECT TRIM(CONCAT(COALESCE(u.first_name, ''), ' ', COALESCE(u.last_name, ''))) as customer_name
+        FROM "Costumer" c
+        LEFT JOIN "Users" u ON c.user_id = u.id
+        WHERE c.user_id = ?
+        """;
+
+    private static final String CUSTOMER_EMAIL_SQL = "SELECT u.email FROM \"Costumer\" c " +
+            "JOIN \"Users\" u ON c.user_id = u.id WHERE c.user_id = ?";
+
+    private static final String ORDER_CUSTOMER_SQL = "SELECT costumer_id FROM \"Orders\" WHERE order_id = ?";
+
+    private static final long PURGE_INTERVAL_MS = 3_600_000;
+
+    private final OrderOutboxRepository outbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationClient notificationClient;
+    private final RoleDirectory roleDirectory;
+    private final CarrierCache carrierCache;
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxNotificationsPerRequest;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long retryMaxBackoffMs;
+    private final long pollIntervalMs;
+    private final int retentionDays;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final Counter delivered;
+    private final Counter retried;
+
+    public OrderOutboxRelay(
+            OrderOutboxRepository outbox,
+            JdbcTemplate jdbcTemplate,
+            NotificationClient notificationClient,
+            RoleDirectory roleDirectory,
+            CarrierCache carrierCache,
+            MeterRegistry meterRegistry,
+            @Value("${order.outbox.batch-size:50}") int batchSize,
+            @Value("${order.outbox.lease-ms:60000}") long leaseMs,
+            @Value("${order.outbox.max-notifications-per-request:500}") int maxNotificationsPerRequest,
+            @Value("${order.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${order.outbox.retry-backoff-ms:2000}") long retryBackoffMs,
+            @Value("${order.outbox.retry-max-backoff-ms:600000}") long retryMaxBackoffMs,
+            @Value("${order.outbox.poll-interval-ms:500}") long pollIntervalMs,
+            @Value("${order.outbox.retention-days:7}") int retentionDays) {
+        this.outbox = outbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationClient = notificationClient;
+        this.roleDirectory = roleDirectory;
+        this.carrierCache = carrierCache;
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.maxNotificationsPerRequest = maxNotificationsPerRequest;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retryMaxBackoffMs = retryMaxBackoffMs;
+        this.pollIntervalMs = pollIntervalMs;
+        this.retentionDays = retentionDays;
+
+        this.delivered = meterRegistry.counter("order.outbox.events", "result", "delivered");
+        this.retried = meterRegistry.counter("order.outbox.events", "result", "retry");
+
+        this.worker = new Thread(this::run, "order-outbox-relay");
+        this.worker.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    private void run() {
+        long nextPurge = System.currentTimeMillis() + PURGE_INTERVAL_MS;
+        while (running) {
+            try {
+                int relayed = relayBatch();
+                if (System.currentTimeMillis() >= nextPurge) {
+                    int purged = outbox.purgeDelivered(retentionDays);
+                    System.out.println("=== Purged " + purged + " delivered outbox events");
+                    nextPurge = System.currentTimeMillis() + PURGE_INTERVAL_MS;
+                }
+                // A full batch means there is probably more waiting
+                if (relayed < batchSize) {
+                    Thread.sleep(pollIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("=== Outbox relay error: " + e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Lease, deliver and record one batch of events
+     *
+     * @return Number of events leased
+     */
+    int relayBatch() {
+        List<Event> events = outbox.claimDue(batchSize, leaseMs);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<Map<String, Object>>> pending = new LinkedHashMap<>();
+        Map<Long, String> failed = new LinkedHashMap<>();
+        for (Event event : events) {
+            try {
+                pending.put(event.id(), toNotifications(event));
+            } catch (Exception e) {
+                System.err.println("=== Could not build notifications for outbox event " + event.id()
+                        + " (" + event.type() + "): " + e.getMessage());
+                failed.put(event.id(), e.getMessage());
+            }
+        }
+        dropUnknownRecipients(pending);
+
+        List<Long> sent = new ArrayList<>();
+        List<Long> group = new ArrayList<>();
+        int groupSize = 0;
+        for (Map.Entry<Long, List<Map<String, Object>>> entry : pending.entrySet()) {
+            int size = entry.getValue().size();
+            if (size == 0) {
+                // Nothing left to send (e.g. every recipient was dropped)
+                sent.add(entry.getKey());
+                continue;
+            }
+            if (!group.isEmpty() && groupSize + size > maxNotificationsPerRequest) {
+                deliverGroup(group, pending, sent, failed);
+                group = new ArrayList<>();
+                groupSize = 0;
+            }
+            group.add(entry.getKey());
+            groupSize += size;
+        }
+        if (!group.isEmpty()) {
+            deliverGroup(group, pending, sent, failed);
+        }
+
+        outbox.markDelivered(sent);
+        delivered.increment(sent.size());
+        for (Map.Entry<Long, String> failure : failed.entrySet()) {
+            outbox.markRetry(List.of(failure.getKey()), failure.getValue(), retryBackoffMs, retryMaxBackoffMs, maxAttempts);
+            retried.increment();
+        }
+        return events.size();
+    }
+
+    /**
+     * Send the notifications of several events in one request. If the notification
+     * service rejects it, send each event on its own so only the bad ones are retried;
+     * if it could not be reached at all, every event in the group is retried.
+     */
+    private void deliverGroup(List<Long> group, Map<Long, List<Map<String, Object>>> pending,
+                              List<Long> sent, Map<Long, String> failed) {
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        for (Long id : group) {
+            notifications.addAll(pending.get(id));
+        }
+
+        try {
+            send(notifications);
+            sent.addAll(group);
+        } catch (HttpStatusCodeException e) {
+            if (group.size() == 1) {
+                failed.put(group.get(0), e.getMessage());
+                return;
+            }
+            System.err.println("=== Outbox delivery of " + group.size() + " events rejected (" + e.getStatusCode()
+                    + "), resending them one by one");
+            for (Long id : group) {
+                try {
+                    send(pending.get(id));
+                    sent.add(id);
+                } catch (Exception single) {
+                    System.err.println("=== Outbox event " + id + " rejected: " + single.getMessage());
+                    failed.put(id, single.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("=== Outbox delivery of " + group.size() + " events failed: " + e.getMessage());
+            for (Long id : group) {
+                failed.put(id, e.getMessage());
+            }
+        }
+    }
+
+    private void send(List<Map<String, Object>> notifications) {
+        // Only a single event with more notifications than that needs several requests
+        for (int from = 0; from < notifications.size(); from += maxNotificationsPerRequest) {
+            int to = Math.min(from + maxNotificationsPerRequest, notifications.size());
+            notificationClient.sendBatch(notifications.subList(from, to));
+        }
+    }
+
+    /**
+     * Drop notifications without a recipient or for users deleted since the event was
+     * written (or since RoleDirectory last refreshed); they would only fail the request
+     */
+    private void dropUnknownRecipients(Map<Long, List<Map<String, Object>>> pending) {
+        Set<UUID> recipients = new HashSet<>();
+        for (List<Map<String, Object>> notifications : pending.values()) {
+            for (Map<String, Object> notification : notifications) {
+                if (notification.get("userId") instanceof UUID userId) {
+                    recipients.add(userId);
+                }
+            }
+        }
+        Set<UUID> existing = outbox.existingUsers(recipients);
+        for (List<Map<String, Object>> notifications : pending.values()) {
+            notifications.removeIf(notification -> !existing.contains(notification.get("userId")));
+        }
+    }
+
+    /**
+     * Expand an order event into the notifications it used to send inline
+     */
+    List<Map<String, Object>> toNotifications(Event event) {
+        UUID orderId = event.orderId();
+        Map<String, Object> payload = event.payload();
+        List<Map<String, Object>> notifications = new ArrayList<>();
+
+        switch (event.type()) {
+            case OrderOutboxRepository.ORDER_CREATED -> {
+                UUID customerId = uuid(payload.get("customerId"));
+                String customerName = customerName(customerId);
+                for (UUID staffId : roleDirectory.members(RoleDirectory.Role.WAREHOUSE_STAFF)) {
+                    notifications.add(notificationClient.newOrder(orderId, customerName, staffId));
+                }
+                if (customerId != null) {
+                    notifications.add(notificationClient.orderCreated(orderId, customerId));
+                }
+            }
+            case OrderOutboxRepository.ORDER_UPDATED -> {
+                UUID customerId = uuid(payload.get("customerId"));
+                String oldStatus = (String) payload.get("oldStatus");
+                String newStatus = (String) payload.get("newStatus");
+                String newCarrierName = null;
+
+                if (Boolean.TRUE.equals(payload.get("carrierChanged"))) {
+                    UUID oldCarrierId = uuid(payload.get("oldCarrierId"));
+                    String oldCarrierName = oldCarrierId != null ? carrierCache.name(oldCarrierId) : "Não Definido";
+                    newCarrierName = carrierCache.name(uuid(payload.get("newCarrierId")));
+                    if (newCarrierName != null) {
+                        for (UUID staffId : roleDirectory.members(RoleDirectory.Role.WAREHOUSE_STAFF)) {
+                            notifications.add(notificationClient.carrierChange(orderId, oldCarrierName, newCarrierName, staffId));
+                        }
+                    }
+                }
+
+                if (Boolean.TRUE.equals(payload.get("statusChanged"))) {
+                    if (customerId != null) {
+                        notifications.add(notificationClient.orderStatusChange(orderId, oldStatus, newStatus, customerId));
+                        if ("InTransit".equals(newStatus) && newCarrierName != null) {
+                            notifications.add(notificationClient.orderDispatched(orderId, newCarrierName, customerId));
+                        }
+                    }
+                    if ("Failed".equals(newStatus)) {
+                        String errorMessage = (String) payload.get("errorMessage");
+                        if (errorMessage == null || errorMessage.trim().isEmpty()) {
+                            errorMessage = "Erro desconhecido";
+                        }
+                        if (customerId != null) {
+                            notifications.add(notificationClient.orderFailed(orderId, errorMessage, customerId));
+                        }
+                        for (UUID staffId : roleDirectory.members(RoleDirectory.Role.WAREHOUSE_STAFF)) {
+                            notifications.add(notificationClient.warehouseStaffOrderFailed(orderId, errorMessage, staffId));
+                        }
+                    }
+                }
+            }
+            case OrderOutboxRepository.ORDER_DELIVERED -> {
+                UUID customerId = uuid(payload.get("customerId"));
+                String oldStatus = (String) payload.get("oldStatus");
+                if (!"Delivered".equals(oldStatus) && customerId != null) {
+                    notifications.add(notificationClient.orderStatusChange(orderId, oldStatus, "Delivered", customerId));
+                }
+            }
+            case OrderOutboxRepository.ANOMALY_REPORTED -> {
+                String errorMessage = (String) payload.get("errorMessage");
+                UUID customerId = first(jdbcTemplate.queryForList(ORDER_CUSTOMER_SQL, UUID.class, orderId));
+                String customerEmail = customerId != null
+                        ? first(jdbcTemplate.queryForList(CUSTOMER_EMAIL_SQL, String.class, customerId))
+                        : null;
+                for (UUID csrId : roleDirectory.members(RoleDirectory.Role.CSR)) {
+                    notifications.add(notificationClient.anomalyReported(orderId, "Anomalia de Entrega", errorMessage, customerEmail, csrId));
+                }
+                if (customerId != null) {
+                    notifications.add(notificationClient.orderFailed(orderId, errorMessage, customerId));
+                }
+                for (UUID staffId : roleDirectory.members(RoleDirectory.Role.WAREHOUSE_STAFF)) {
+                    notifications.add(notificationClient.warehouseStaffOrderFailed(orderId, errorMessage, staffId));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown outbox event type " + event.type());
+        }
+        return notifications;
+    }
+
+    private String customerName(UUID customerId) {
+        if (customerId == null) {
+            return "Cliente";
+        }
+        String name = first(jdbcTemplate.queryForList(CUSTOMER_NAME_SQL, String.class, customerId));
+        return name == null || name.trim().isEmpty() ? "Cliente" : name;
+    }
+
+    private static UUID uuid(Object value) {
+        return value != null ? UUID.fromString(value.toString()) : null;
+    }
+
+    private static <T> T first(List<T> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(5000);
+    }
+}
@@ -0,0 +1,300 @@
+package com.shipping.orderservice.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.shipping.orderservice.storage.PodBlobStore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background pipeline that derives display-sized copies of proof-of-delivery photos.
+ *
+ * After a delivery is confirmed the original upload is re-encoded as a JPEG capped at
+ * pod.image.max-dimension, plus a small thumbnail, both stored in the blob store and
+ * referenced from "Orders".pod_normalized_ref / pod_thumbnail_ref. The original stays
+ * untouched in pod_ref. Work runs on a small bounded pool; when the queue is full the
+ * order is left without derived images until the sweep, which every
+ * pod.image.sweep-interval-ms re-queues orders whose pod_normalized_ref is still
+ * missing (including rows moved out of the legacy bytea by PodBlobMigrator).
+ *
+ * The image size is read from its header before anything is decoded: images over
+ * pod.image.max-pixels are not decoded at all, and larger ones are decoded with
+ * source subsampling so the raster held in memory stays around twice the display
+ * size. Proofs that cannot get derived images (PDFs, oversized or unreadable images)
+ * get pod_normalized_ref = pod_ref and no thumbnail, so the sweep skips them and
+ * readers use the original.
+ */
+@Service
+public class PodImageProcessor {
+
+    private static final String UPDATE_REFS = """
+        UPDATE "Orders"
+        SET pod_normalized_ref = ?, pod_thumbnail_ref = ?
+        WHERE order_id = ? AND pod_ref = ?
+        """;
+
+    private static final String SELECT_UNPROCESSED = """
+        SELECT order_id, pod_ref
+        FROM "Orders"
+        WHERE pod_ref IS NOT NULL AND pod_normalized_ref IS NULL
+        LIMIT ?
+        """;
+
+    private final PodBlobStore podBlobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TrackingCache trackingCache;
+    private final ThreadPoolExecutor executor;
+    private final int maxDimension;
+    private final int thumbnailSize;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final long sweepIntervalMs;
+
+    // Orders queued or being processed, so the sweep does not queue them twice
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+    private final Thread sweeper;
+    private volatile boolean running = true;
+
+    public PodImageProcessor(
+            PodBlobStore podBlobStore,
+            JdbcTemplate jdbcTemplate,
+            TrackingCache trackingCache,
+            @Value("${pod.image.threads:2}") int threads,
+            @Value("${pod.image.queue-capacity:200}") int queueCapacity,
+            @Value("${pod.image.max-dimension:1600}") int maxDimension,
+            @Value("${pod.image.thumbnail-size:400}") int thumbnailSize,
+            @Value("${pod.image.jpeg-quality:0.8}") float jpegQuality,
+            @Value("${pod.image.max-pixels:100000000}") long maxPixels,
+            @Value("${pod.image.sweep-interval-ms:300000}") long sweepIntervalMs) {
+        this.podBlobStore = podBlobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.trackingCache = trackingCache;
+        this.maxDimension = maxDimension;
+        this.thumbnailSize = thumbnailSize;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.sweepIntervalMs = sweepIntervalMs;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pod-image-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.sweeper = new Thread(this::sweepLoop, "pod-image-sweep");
+        this.sweeper.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper.start();
+    }
+
+    /**
+     * Queue normalization of a freshly stored proof of delivery
+     *
+     * @param orderId Order the proof belongs to
+     * @param podRef Blob reference of the original upload
+     * @return false if the queue was full (the sweep picks the order up later)
+     */
+    public boolean submit(UUID orderId, String podRef) {
+        if (!pending.add(orderId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> process(orderId, podRef));
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(orderId);
+            System.err.println("=== POD image queue full, order " + orderId
+                    + " gets no thumbnail until the next sweep");
+            return false;
+        }
+    }
+
+    void process(UUID orderId, String podRef) {
+        try {
+            BufferedImage original = decode(orderId, podBlobStore.read(podRef));
+            if (original == null) {
+                // Nothing to derive; the original is also the display copy
+                jdbcTemplate.update(UPDATE_REFS, podRef, null, orderId, podRef);
+                return;
+            }
+
+            String normalizedRef = podBlobStore.put(toJpeg(scaleToFit(original, maxDimension)));
+            String thumbnailRef = podBlobStore.put(toJpeg(scaleToFit(original, thumbnailSize)));
+
+            // Only attach if the order still points at the same upload
+            if (jdbcTemplate.update(UPDATE_REFS, normalizedRef, thumbnailRef, orderId, podRef) > 0) {
+                // Cached tracking views were built without the thumbnail
+                trackingCache.invalidateOrder(orderId);
+            }
+            System.out.println("=== Normalized POD for order " + orderId + ": "
+                    + original.getWidth() + "x" + original.getHeight());
+        } catch (Exception e) {
+            System.err.println("=== ERROR normalizing POD for order " + orderId + ": " + e.getMessage());
+        } finally {
+            pending.remove(orderId);
+        }
+    }
+
+    /**
+     * Decode an image, subsampled to about twice maxDimension on its longest side
+     *
+     * @return The image, or null if it is not an image ImageIO reads (e.g. PDF), is
+     *         unreadable or has more than maxPixels pixels
+     */
+    BufferedImage decode(UUID orderId, byte[] data) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    System.err.println("=== POD image for order " + orderId + " is " + width + "x" + height
+                            + ", over pod.image.max-pixels; keeping the original only");
+                    return null;
+                }
+
+                int step = Math.max(1, ceilDiv(Math.max(width, height), 2 * maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IOException e) {
+                System.err.println("=== Unreadable POD image for order " + orderId + ": " + e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int ceilDiv(int x, int y) {
+        return (x + y - 1) / y;
+    }
+
+    private void sweepLoop() {
+        while (running) {
+            try {
+                Thread.sleep(sweepIntervalMs);
+                sweep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("=== POD image sweep error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue orders whose proof still has no derived images, as far as the queue has room
+     */
+    void sweep() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SELECT_UNPROCESSED, room);
+        int queued = 0;
+        for (Map<String, Object> row : rows) {
+            UUID orderId = (UUID) row.get("order_id");
+            if (pending.contains(orderId)) {
+                continue;
+            }
+            if (!submit(orderId, (String) row.get("pod_ref"))) {
+                break;
+            }
+            queued++;
+        }
+        if (queued > 0) {
+            System.out.println("=== POD image sweep queued " + queued + " orders");
+        }
+    }
+
+    /**
+     * Scale an image down so its longest side is at most maxSide (never up), onto an
+     * opaque white background so transparent signatures stay readable as JPEG
+     */
+    static BufferedImage scaleToFit(BufferedImage source, int maxSide) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] toJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        sweeper.interrupt();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,194 @@
+package com.shipping.orderservice.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory snapshot of notification recipients per role ("WarehouseStaff", "Csr"),
+ * as "Users".id values (the Notifications FK).
+ *
+ * Both lists are loaded with one query and swapped in as an immutable map. A background
+ * thread reloads them every role.directory.refresh-ms and whenever membership changes:
+ * it LISTENs on the role_membership_changed channel, which UserSyncService signals with
+ * pg_notify after each role-table insert and the role-table triggers (migration 015)
+ * signal on update, delete and truncate, including deletes cascaded from "Users". The
+ * listener keeps one connection from the pool; if it drops, the thread reconnects and
+ * reloads.
+ *
+ * Metrics: role.directory.members (role=WarehouseStaff|Csr).
+ */
+@Service
+public class RoleDirectory {
+
+    public static final String CHANNEL = "role_membership_changed";
+
+    public enum Role {
+        WAREHOUSE_STAFF("WarehouseStaff"),
+        CSR("Csr");
+
+        private final String table;
+
+        Role(String table) {
+            this.table = table;
+        }
+
+        public String getTable() {
+            return table;
+        }
+    }
+
+    private static final String SELECT_MEMBERS = """
+        SELECT 'WarehouseStaff' AS role, u.id FROM "WarehouseStaff" ws JOIN "Users" u ON ws.user_id = u.id
+        UNION ALL
+        SELECT 'Csr' AS role, u.id FROM "Csr" csr JOIN "Users" u ON csr.user_id = u.id
+        """;
+
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final long refreshMs;
+    private final boolean listen;
+    private final Thread worker;
+    private volatile Map<Role, List<UUID>> snapshot;
+    private volatile boolean running = true;
+
+    public RoleDirectory(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${role.directory.refresh-ms:300000}") long refreshMs,
+            @Value("${role.directory.listen:true}") boolean listen) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.refreshMs = refreshMs;
+        this.listen = listen;
+
+        for (Role role : Role.values()) {
+            Gauge.builder("role.directory.members", this, d -> d.currentSize(role))
+                    .tag("role", role.getTable())
+                    .register(meterRegistry);
+        }
+
+        this.worker = new Thread(this::run, "role-directory");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Current members of a role; loads the directory on first use
+     */
+    public List<UUID> members(Role role) {
+        Map<Role, List<UUID>> current = snapshot;
+        if (current == null) {
+            current = refresh();
+        }
+        return current.get(role);
+    }
+
+    /**
+     * Reload both role lists and swap them in
+     */
+    public synchronized Map<Role, List<UUID>> refresh() {
+        Map<Role, List<UUID>> loaded = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            loaded.put(role, new ArrayList<>());
+        }
+        jdbcTemplate.query(SELECT_MEMBERS, (RowCallbackHandler) rs -> {
+            Role role = "Csr".equals(rs.getString("role")) ? Role.CSR : Role.WAREHOUSE_STAFF;
+            loaded.get(role).add(rs.getObject("id", UUID.class));
+        });
+        loaded.replaceAll((role, ids) -> List.copyOf(ids));
+
+        Map<Role, List<UUID>> next = Map.copyOf(loaded);
+        snapshot = next;
+        return next;
+    }
+
+    private int currentSize(Role role) {
+        Map<Role, List<UUID>> current = snapshot;
+        return current != null ? current.get(role).size() : 0;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (listen) {
+                    listenAndRefresh();
+                } else {
+                    refresh();
+                    Thread.sleep(refreshMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("=== Role directory refresh/listen error: " + e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listenAndRefresh() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            try {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // Catch up on anything missed while we were not listening
+                refresh();
+                long nextRefresh = System.currentTimeMillis() + refreshMs;
+                while (running) {
+                    long wait = Math.max(1, nextRefresh - System.currentTimeMillis());
+                    PGNotification[] notifications = pgConnection.getNotifications((int) Math.min(wait, Integer.MAX_VALUE));
+                    boolean changed = notifications != null && notifications.length > 0;
+                    if (changed || System.currentTimeMillis() >= nextRefresh) {
+                        refresh();
+                        nextRefresh = System.currentTimeMillis() + refreshMs;
+                    }
+                }
+            } finally {
+                // The connection goes back to the pool; don't leave it subscribed
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN " + CHANNEL);
+                } catch (SQLException ignored) {
+                    // Connection is broken; the pool will discard it
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(2000);
+    }
+}
@@ -0,0 +1,189 @@
+package com.shipping.orderservice.service;
+
+import java.io.ByteArrayOutputStream;
+
+import org.springframework.stereotype.Component;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.properties.HorizontalAlignment;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.shipping.orderservice.model.Order;
+
+/**
+ * Renders packing slips and shipping labels as PDF
+ */
+@Component
+public class ShippingDocumentRenderer {
+
+    /**
+     * Bump whenever the layout below changes, so cached documents rendered
+     * with the old layout stop matching (see DocumentCache)
+     */
+    public static final int LAYOUT_VERSION = 2;
+
+    /** Printed edge length of the tracking QR code, in PDF points */
+    static final float QR_SIZE_PT = 150f;
+
+    /**
+     * Render the packing slip for an order
+     */
+    public byte[] renderPackingSlip(Order order, String carrierName) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfWriter writer = new PdfWriter(baos);
+        PdfDocument pdf = new PdfDocument(writer);
+        Document document = new Document(pdf);
+
+        // Add content
+        document.add(new Paragraph("PACKING SLIP")
+                .setFontSize(20)
+                .setBold()
+                .setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("\n"));
+
+        document.add(new Paragraph("Order ID: " + order.getOrderId()));
+        document.add(new Paragraph("Date: " + order.getOrderDate()));
+        document.add(new Paragraph("Status: " + order.getStatus()));
+        document.add(new Paragraph("\n"));
+
+        document.add(new Paragraph("SHIPPING DETAILS").setBold());
+        document.add(new Paragraph("From: " + order.getOriginAddress()));
+        document.add(new Paragraph("To: " + order.getDestinationAddress()));
+        document.add(new Paragraph("Weight: " + order.getWeight() + " kg"));
+        document.add(new Paragraph("Carrier: " + carrierName));
+        document.add(new Paragraph("\n"));
+
+        document.add(new Paragraph("Customer ID: " + order.getCustomerId()));
+
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Render the shipping label (with tracking QR code) for an order
+     */
+    public byte[] renderShippingLabel(Order order, String carrierName) throws Exception {
+        BitMatrix qrMatrix = encodeTrackingQr(order);
+
+        // Generate PDF
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfWriter writer = new PdfWriter(baos);
+        PdfDocument pdf = new PdfDocument(writer);
+        Document document = new Document(pdf);
+
+        addShippingLabel(document, order, carrierName, qrMatrix);
+
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Encode the tracking QR code of an order as a module matrix (one bit per module,
+     * including the quiet zone). Independent of any PDF document, so it can run on worker threads.
+     */
+    public BitMatrix encodeTrackingQr(Order order) throws WriterException {
+        String trackingData = order.getOrderId().toString();
+        QRCodeWriter qrCodeWriter = new QRCodeWriter();
+        // Size 0 = one bit per module; scaling happens when drawing
+        return qrCodeWriter.encode(trackingData, BarcodeFormat.QR_CODE, 0, 0);
+    }
+
+    /**
+     * Draw a QR matrix as PDF vector content.
+     * Each row's horizontal runs of dark modules become one rectangle, all filled in a
+     * single operation, inside a form XObject sized QR_SIZE_PT. No raster image is
+     * created, encoded or decoded.
+     */
+    public Image toQrImage(PdfDocument pdf, BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        float module = QR_SIZE_PT / Math.max(width, height);
+
+        PdfFormXObject xObject = new PdfFormXObject(new Rectangle(width * module, height * module));
+        PdfCanvas canvas = new PdfCanvas(xObject, pdf);
+        canvas.setFillColor(ColorConstants.BLACK);
+        for (int y = 0; y < height; y++) {
+            // PDF origin is bottom-left, matrix origin is top-left
+            float rowY = (height - 1 - y) * module;
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < width && matrix.get(x, y)) {
+                    x++;
+                }
+                canvas.rectangle(runStart * module, rowY, (x - runStart) * module, module);
+            }
+        }
+        canvas.fill();
+        canvas.release();
+
+        return new Image(xObject);
+    }
+
+    /**
+     * Lay out one shipping label on the current page of the document
+     */
+    public void addShippingLabel(Document document, Order order, String carrierName, BitMatrix qrMatrix) {
+        // Add title
+        document.add(new Paragraph("SHIPPING LABEL")
+                .setFontSize(24)
+                .setBold()
+                .setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("\n"));
+
+        // Add carrier logo/name
+        document.add(new Paragraph(carrierName)
+                .setFontSize(18)
+                .setBold()
+                .setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("\n"));
+
+        // Add recipient address (larger font)
+        document.add(new Paragraph("DELIVER TO:")
+                .setFontSize(12)
+                .setBold());
+        document.add(new Paragraph(order.getDestinationAddress())
+                .setFontSize(16)
+                .setBold());
+        document.add(new Paragraph("\n"));
+
+        // Add origin address
+        document.add(new Paragraph("FROM:")
+                .setFontSize(10)
+                .setBold());
+        document.add(new Paragraph(order.getOriginAddress())
+                .setFontSize(12));
+        document.add(new Paragraph("\n"));
+
+        // Add weight and tracking info
+        document.add(new Paragraph("Weight: " + order.getWeight() + " kg")
+                .setFontSize(12));
+        document.add(new Paragraph("Tracking ID: " + order.getOrderId().toString().substring(0, 13))
+                .setFontSize(10));
+        document.add(new Paragraph("\n"));
+
+        // Add QR Code
+        Image qrCodeImage = toQrImage(document.getPdfDocument(), qrMatrix);
+        qrCodeImage.setHorizontalAlignment(HorizontalAlignment.CENTER);
+        document.add(qrCodeImage);
+
+        document.add(new Paragraph("Scan for tracking")
+                .setFontSize(10)
+                .setTextAlignment(TextAlignment.CENTER));
+    }
+}
@@ -0,0 +1,143 @@
+package com.shipping.orderservice.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read-through cache for public tracking responses (GET /api/orders/track/{trackingId}).
+ *
+ * Entries live for tracking.cache.ttl-seconds and are dropped explicitly whenever code
+ * in this service changes an order; the TTL only bounds staleness for changes made
+ * elsewhere (e.g. a carrier renamed in carrier_service). Bodies inline at most a proof
+ * of delivery thumbnail, never the original, so tracking.cache.max-entries bounds the
+ * memory used. Hits and misses are exported as the order.tracking.cache counter.
+ */
+@Service
+public class TrackingCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return The tracking view, or null if there is no such order (not cached)
+         */
+        Loaded load() throws Exception;
+    }
+
+    /**
+     * Result of a cache miss: the response body plus the order it belongs to
+     */
+    public record Loaded(UUID orderId, Map<String, Object> body) {}
+
+    private record Entry(UUID orderId, Map<String, Object> body, long expiresAt) {}
+
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Keys cached per order, so an order change can drop all its views
+    private final Map<UUID, Set<String>> keysByOrder = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a load that overlapped one is not stored
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public TrackingCache(
+            MeterRegistry meterRegistry,
+            @Value("${tracking.cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${tracking.cache.max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("order.tracking.cache", "result", "hit");
+        this.misses = meterRegistry.counter("order.tracking.cache", "result", "miss");
+    }
+
+    /**
+     * Return the cached view for the key, loading and storing it on a miss
+     *
+     * @param key Tracking ID plus anything else that shapes the response
+     * @return The (read-only) response body, or null if the loader found nothing
+     */
+    public Map<String, Object> getOrLoad(String key, Loader loader) throws Exception {
+        Entry entry = get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry.body();
+        }
+        misses.increment();
+
+        long stamp = invalidations.get();
+        Loaded loaded = loader.load();
+        if (loaded == null) {
+            return null;
+        }
+
+        Map<String, Object> body = Collections.unmodifiableMap(new LinkedHashMap<>(loaded.body()));
+        put(key, loaded.orderId(), body, stamp);
+        return body;
+    }
+
+    /**
+     * Drop every cached view of an order (call after the order changes)
+     */
+    public synchronized void invalidateOrder(UUID orderId) {
+        invalidations.incrementAndGet();
+        Set<String> keys = keysByOrder.remove(orderId);
+        if (keys != null) {
+            for (String key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    private synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            forgetKey(entry.orderId(), key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(String key, UUID orderId, Map<String, Object> body, long stamp) {
+        // An invalidation ran while loading, so the body may already be stale
+        if (invalidations.get() != stamp) {
+            return;
+        }
+        keysByOrder.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(key);
+        entries.put(key, new Entry(orderId, body, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<String, Entry>> lru = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            Map.Entry<String, Entry> eldest = lru.next();
+            lru.remove();
+            forgetKey(eldest.getValue().orderId(), eldest.getKey());
+        }
+    }
+
+    private void forgetKey(UUID orderId, String key) {
+        keysByOrder.computeIfPresent(orderId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.shipping.orderservice.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link PodBlobStore} on the local filesystem.
+ *
+ * Layout: {root}/{ref[0..2]}/{ref[2..4]}/{ref}, so no directory grows too large.
+ * Writes go to a temp file first and are moved into place atomically; if the target
+ * already exists the temp file is discarded (dedup). Reads use FileChannel.transferTo.
+ */
+@Component
+public class LocalFilesystemPodBlobStore implements PodBlobStore {
+
+    private static final Pattern REF_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /** Copy buffer for streamed uploads; the only part of an upload held in memory */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    public LocalFilesystemPodBlobStore(@Value("${pod.storage.dir:./data/pod}") String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public String put(byte[] data) throws IOException {
+        String ref = sha256(data);
+        Path target = path(ref);
+        if (Files.exists(target)) {
+            return ref;
+        }
+
+        Path tmp = Files.createTempFile(root, "pod-", ".tmp");
+        try {
+            Files.write(tmp, data);
+            commit(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return ref;
+    }
+
+    @Override
+    public String put(InputStream in, long maxBytes) throws IOException {
+        MessageDigest digest = newSha256();
+        Path tmp = Files.createTempFile(root, "pod-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long total = 0;
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    total += n;
+                    if (total > maxBytes) {
+                        throw new PodTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+
+            String ref = HexFormat.of().formatHex(digest.digest());
+            Path target = path(ref);
+            if (!Files.exists(target)) {
+                commit(tmp, target);
+            }
+            return ref;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public boolean exists(String ref) {
+        return REF_PATTERN.matcher(ref).matches() && Files.exists(path(ref));
+    }
+
+    @Override
+    public long size(String ref) throws IOException {
+        return Files.size(path(ref));
+    }
+
+    @Override
+    public String contentType(String ref) throws IOException {
+        byte[] head = new byte[8];
+        int read;
+        try (InputStream in = Files.newInputStream(path(ref))) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        return PodBlobStore.sniffContentType(head, read);
+    }
+
+    @Override
+    public byte[] read(String ref) throws IOException {
+        return Files.readAllBytes(path(ref));
+    }
+
+    @Override
+    public long transferTo(String ref, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(ref), StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < count) {
+                long n = channel.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    break;
+                }
+                transferred += n;
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * Move a fully written temp file to its content address
+     */
+    void commit(Path tmp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Same content stored concurrently - keep the existing copy
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!Files.exists(target)) {
+                Files.move(tmp, target);
+            }
+        }
+    }
+
+    Path root() {
+        return root;
+    }
+
+    Path path(String ref) {
+        if (!REF_PATTERN.matcher(ref).matches()) {
+            throw new IllegalArgumentException("Invalid POD reference: " + ref);
+        }
+        return root.resolve(ref.substring(0, 2)).resolve(ref.substring(2, 4)).resolve(ref);
+    }
+
+    private static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(newSha256().digest(data));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.shipping.orderservice.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration of legacy "Orders".pod bytea values into the blob store.
+ *
+ * Enable with POD_MIGRATION_ENABLED=true. Works in small batches so only one batch of
+ * images is held in memory; each row is switched to pod_ref and its bytea cleared in
+ * the same UPDATE, so the run can be interrupted and restarted at any point.
+ */
+@Component
+@ConditionalOnProperty(name = "pod.migration.enabled", havingValue = "true")
+public class PodBlobMigrator implements ApplicationRunner {
+
+    private static final String SELECT_BATCH = """
+        SELECT order_id, pod
+        FROM "Orders"
+        WHERE pod IS NOT NULL AND pod_ref IS NULL
+        LIMIT ?
+        """;
+
+    private static final String UPDATE_ROW = """
+        UPDATE "Orders"
+        SET pod_ref = ?, pod = NULL
+        WHERE order_id = ? AND pod_ref IS NULL
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PodBlobStore podBlobStore;
+    private final int batchSize;
+
+    public PodBlobMigrator(JdbcTemplate jdbcTemplate, PodBlobStore podBlobStore,
+                           @Value("${pod.migration.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.podBlobStore = podBlobStore;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        System.out.println("=== Migrating proof-of-delivery blobs out of \"Orders\".pod");
+        int migrated = 0;
+        while (true) {
+            List<Map<String, Object>> batch = jdbcTemplate.queryForList(SELECT_BATCH, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Map<String, Object> row : batch) {
+                UUID orderId = (UUID) row.get("order_id");
+                String ref = podBlobStore.put((byte[]) row.get("pod"));
+                jdbcTemplate.update(UPDATE_ROW, ref, orderId);
+                migrated++;
+            }
+            System.out.println("=== Migrated " + migrated + " POD blobs so far");
+        }
+        System.out.println("=== POD migration finished: " + migrated + " orders migrated");
+    }
+}
@@ -0,0 +1,78 @@
+package com.shipping.orderservice.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Content-addressed storage for proof-of-delivery blobs (photos, signatures).
+ *
+ * Blobs are identified by the lowercase hex SHA-256 of their content, which is what
+ * "Orders".pod_ref holds. Storing the same content twice keeps a single copy.
+ */
+public interface PodBlobStore {
+
+    /**
+     * Store a blob
+     * @return The blob reference (SHA-256 hex)
+     */
+    String put(byte[] data) throws IOException;
+
+    /**
+     * Store a blob read from a stream, hashing it while it is copied.
+     * Only a fixed-size buffer is held in memory.
+     *
+     * @param in Blob content; read to the end but not closed
+     * @param maxBytes Upload limit; exceeding it aborts the copy
+     * @return The blob reference (SHA-256 hex)
+     * @throws PodTooLargeException If the stream holds more than maxBytes
+     */
+    String put(InputStream in, long maxBytes) throws IOException;
+
+    /**
+     * Check whether a blob exists
+     */
+    boolean exists(String ref);
+
+    /**
+     * Size of a blob in bytes
+     */
+    long size(String ref) throws IOException;
+
+    /**
+     * Best-effort media type, sniffed from the first bytes of the blob
+     */
+    String contentType(String ref) throws IOException;
+
+    /**
+     * Read a whole blob into memory (only for small blobs or legacy callers)
+     */
+    byte[] read(String ref) throws IOException;
+
+    /**
+     * Copy a byte range of a blob to the target channel without staging it on the heap
+     *
+     * @param ref Blob reference
+     * @param position First byte to copy
+     * @param count Number of bytes to copy
+     * @param target Destination channel
+     * @return Number of bytes copied
+     */
+    long transferTo(String ref, long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Best-effort media type of content starting with the given bytes
+     */
+    static String sniffContentType(byte[] head, int length) {
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (length >= 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F') {
+            return "application/pdf";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,20 @@
+package com.shipping.orderservice.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a proof-of-delivery upload exceeds the configured size limit
+ */
+public class PodTooLargeException extends IOException {
+
+    private final long maxBytes;
+
+    public PodTooLargeException(long maxBytes) {
+        super("Proof of delivery exceeds the limit of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,94 @@
+package com.shipping.orderservice.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Image;
+import com.shipping.orderservice.model.Order;
+import com.shipping.orderservice.service.ShippingDocumentRenderer;
+
+/**
+ * Compares the previous shipping-label QR path (BitMatrix -> BufferedImage -> PNG ->
+ * ImageDataFactory) with drawing the BitMatrix straight into PDF vector content.
+ * Both variants produce a one-page PDF holding only the QR code.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.shipping.orderservice.benchmark.QrLabelRenderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QrLabelRenderBenchmark {
+
+    private ShippingDocumentRenderer renderer;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        renderer = new ShippingDocumentRenderer();
+        order = new Order();
+        order.setOrderId(UUID.fromString("6f1c2a0e-5b7d-4c1e-9a3f-2d8e4b6c7a90"));
+    }
+
+    @Benchmark
+    public byte[] pngRoundTrip() throws Exception {
+        QRCodeWriter qrCodeWriter = new QRCodeWriter();
+        BitMatrix bitMatrix = qrCodeWriter.encode(order.getOrderId().toString(), BarcodeFormat.QR_CODE, 150, 150);
+        BufferedImage qrImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
+        ByteArrayOutputStream qrBaos = new ByteArrayOutputStream();
+        ImageIO.write(qrImage, "PNG", qrBaos);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document(new PdfDocument(new PdfWriter(baos)));
+        document.add(new Image(ImageDataFactory.create(qrBaos.toByteArray())));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] vectorContent() throws Exception {
+        BitMatrix bitMatrix = renderer.encodeTrackingQr(order);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document(new PdfDocument(new PdfWriter(baos)));
+        document.add(renderer.toQrImage(document.getPdfDocument(), bitMatrix));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QrLabelRenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
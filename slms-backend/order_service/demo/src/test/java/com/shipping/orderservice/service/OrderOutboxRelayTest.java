@@ -0,0 +1,108 @@
+package com.shipping.orderservice.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.shipping.orderservice.repository.OrderOutboxRepository;
+import com.shipping.orderservice.repository.OrderOutboxRepository.Event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderOutboxRelayTest {
+
+    private final UUID good1 = UUID.randomUUID();
+    private final UUID poison = UUID.randomUUID();
+    private final UUID good3 = UUID.randomUUID();
+    private final UUID deleted = UUID.randomUUID();
+
+    private OrderOutboxRepository outbox;
+    private NotificationDispatcher dispatcher;
+    private OrderOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outbox = mock(OrderOutboxRepository.class);
+        dispatcher = mock(NotificationDispatcher.class);
+        RoleDirectory roleDirectory = mock(RoleDirectory.class);
+        when(roleDirectory.members(any())).thenReturn(List.of());
+
+        when(outbox.claimDue(anyInt(), anyLong())).thenReturn(List.of(
+                delivered(1, good1),
+                delivered(2, poison),
+                delivered(3, good3),
+                delivered(4, deleted),
+                // Order whose customer was removed (costumer_id set to NULL)
+                new Event(5, UUID.randomUUID(), OrderOutboxRepository.ORDER_CREATED, Map.of(), 0)));
+        when(outbox.existingUsers(any())).thenAnswer(invocation -> {
+            Set<UUID> existing = new HashSet<>(invocation.<Collection<UUID>>getArgument(0));
+            existing.remove(deleted);
+            return existing;
+        });
+
+        relay = new OrderOutboxRelay(outbox, mock(JdbcTemplate.class), new NotificationClient(dispatcher),
+                roleDirectory, mock(CarrierCache.class), new SimpleMeterRegistry(),
+                50, 60000, 500, 10, 2000, 600000, 500, 7);
+    }
+
+    @Test
+    void poisonEventOnlyRetriesItself() {
+        doAnswer(invocation -> {
+            List<Map<String, Object>> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(n -> poison.equals(n.get("userId")))) {
+                throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            return null;
+        }).when(dispatcher).deliverNow(any());
+
+        relay.relayBatch();
+
+        verify(outbox).markDelivered(List.of(4L, 5L, 1L, 3L));
+        verify(outbox).markRetry(eq(List.of(2L)), anyString(), anyLong(), anyLong(), anyInt());
+        verify(outbox, times(1)).markRetry(any(), any(), anyLong(), anyLong(), anyInt());
+        // The notification for the deleted user was never sent
+        verify(dispatcher, never()).deliverNow(argThat(batch ->
+                batch.stream().anyMatch(n -> deleted.equals(n.get("userId")))));
+    }
+
+    @Test
+    void unreachableServiceRetriesEveryEventWithoutSplitting() {
+        doAnswer(invocation -> {
+            throw new ResourceAccessException("connect timed out");
+        }).when(dispatcher).deliverNow(any());
+
+        relay.relayBatch();
+
+        verify(dispatcher, times(1)).deliverNow(any());
+        verify(outbox).markDelivered(List.of(4L, 5L));
+        verify(outbox, times(3)).markRetry(any(), eq("connect timed out"), anyLong(), anyLong(), anyInt());
+    }
+
+    private static Event delivered(long id, UUID customerId) {
+        return new Event(id, UUID.randomUUID(), OrderOutboxRepository.ORDER_DELIVERED,
+                Map.of("customerId", customerId.toString(), "oldStatus", "InTransit"), 0);
+    }
+}
@@ -1,19 +1,33 @@
 package es204.user_service.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import es204.user_service.sync.RealmImportService;
+import es204.user_service.sync.UserIdCache;
+
 /**
  * User controller for user-related endpoints
  * All endpoints require JWT authentication
@@ -24,7 +38,16 @@ import org.springframework.web.bind.annotation.RestController;
 public class UserController {
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private RealmImportService realmImportService;
+
+    @Autowired
+    private UserIdCache userIdCache;
+
+    @Value("${user.import.role:Logistics_Manager}")
+    private String importRole;
+
+    @Value("${user.resolve.max-ids:1000}")
+    private int maxResolveIds;
 
     /**
      * Get current authenticated user information from JWT token
@@ -98,23 +121,111 @@ public class UserController {
      * This endpoint is used by notification-service to translate keycloak_id to Users.id
      * 
      * @param keycloakId The keycloak_id (UUID)
-     * @return Map with database user ID
+     * @return Map with database user ID; 400 for a malformed keycloak_id, 404 for an unknown one
      */
     @GetMapping("/by-keycloak/{keycloakId}")
-    public Map<String, Object> getUserByKeycloakId(@PathVariable String keycloakId) {
+    public ResponseEntity<Map<String, Object>> getUserByKeycloakId(@PathVariable String keycloakId) {
         Map<String, Object> response = new HashMap<>();
         
+        UUID userId;
         try {
-            String sql = "SELECT id FROM \"Users\" WHERE keycloak_id = ?::uuid";
-            UUID userId = jdbcTemplate.queryForObject(sql, UUID.class, keycloakId);
-            
-            response.put("id", userId);
-            response.put("keycloak_id", keycloakId);
-        } catch (Exception e) {
+            userId = userIdCache.resolve(UUID.fromString(keycloakId));
+        } catch (IllegalArgumentException e) {
+            response.put("error", "Invalid keycloak_id");
+            response.put("message", "Invalid keycloak_id: " + keycloakId);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        if (userId == null) {
             response.put("error", "User not found");
-            response.put("message", e.getMessage());
+            response.put("message", "No user with keycloak_id " + keycloakId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
-        
-        return response;
+
+        response.put("id", userId);
+        response.put("keycloak_id", keycloakId);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get database Users.id for many keycloak_ids in one call
+     * (body: JSON array of keycloak_ids, at most user.resolve.max-ids)
+     * 
+     * @param keycloakIds The keycloak_ids to resolve
+     * @return One entry per requested ID, in request order, with status "found" (and id),
+     *         "not_found" or "invalid"
+     */
+    @PostMapping("/by-keycloak")
+    public ResponseEntity<List<Map<String, Object>>> getUsersByKeycloakIds(@RequestBody List<String> keycloakIds) {
+        if (keycloakIds.size() > maxResolveIds) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<String, UUID> parsed = new LinkedHashMap<>();
+        for (String keycloakId : keycloakIds) {
+            try {
+                parsed.put(keycloakId, UUID.fromString(keycloakId));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                parsed.put(keycloakId, null);
+            }
+        }
+        Map<UUID, UUID> userIds = userIdCache.resolve(
+                parsed.values().stream().filter(Objects::nonNull).distinct().toList());
+
+        List<Map<String, Object>> response = new ArrayList<>(keycloakIds.size());
+        for (String keycloakId : keycloakIds) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("keycloak_id", keycloakId);
+            UUID parsedId = parsed.get(keycloakId);
+            UUID userId = parsedId != null ? userIds.get(parsedId) : null;
+            if (parsedId == null) {
+                entry.put("status", "invalid");
+            } else if (userId == null) {
+                entry.put("status", "not_found");
+            } else {
+                entry.put("status", "found");
+                entry.put("id", userId);
+            }
+            response.add(entry);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Import the users of a Keycloak realm export (body: the export JSON, streamed)
+     * into Users and the role tables ahead of their first login.
+     * Restricted to the realm role in user.import.role.
+     * 
+     * @param authentication Spring Security authentication object
+     * @param body The realm export
+     * @return Users imported and skipped, batches that failed, and role rows added per table
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> importRealm(Authentication authentication, InputStream body) {
+        if (!hasRealmRole(authentication, importRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Requires role " + importRole));
+        }
+
+        try {
+            RealmImportService.ImportResult result = realmImportService.importRealm(body);
+            Map<String, Object> response = new HashMap<>();
+            response.put("imported", result.users());
+            response.put("skipped", result.skipped());
+            response.put("failedBatches", result.failedBatches());
+            response.put("roleMemberships", result.roleMemberships());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid realm export", "message", e.getMessage()));
+        }
+    }
+
+    private static boolean hasRealmRole(Authentication authentication, String role) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt)) {
+            return false;
+        }
+        Map<String, Object> realmAccess = ((Jwt) authentication.getPrincipal()).getClaimAsMap("realm_access");
+        return realmAccess != null
+                && realmAccess.get("roles") instanceof List<?> roles
+                && roles.contains(role);
     }
 }
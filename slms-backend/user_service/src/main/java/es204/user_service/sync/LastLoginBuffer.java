@@ -0,0 +1,136 @@
+package es204.user_service.sync;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for "Users".last_login.
+ *
+ * Syncs only record the latest login time per user in memory; a background thread
+ * writes everything buffered every user.last-login.flush-ms with one
+ * UPDATE ... FROM (VALUES ...) per user.last-login.batch-size users, and once more
+ * on shutdown. However often a user calls in, their row is rewritten at most once
+ * per flush interval. The UPDATE never moves last_login backwards.
+ */
+@Component
+public class LastLoginBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginBuffer.class);
+
+    private static final String UPDATE_PREFIX = "UPDATE \"Users\" u SET last_login = v.last_login FROM (VALUES ";
+    private static final String UPDATE_SUFFIX = ") AS v(id, last_login) "
+            + "WHERE u.id = v.id AND (u.last_login IS NULL OR u.last_login < v.last_login)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushMs;
+    private final int batchSize;
+    private final Map<UUID, Instant> pending = new ConcurrentHashMap<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public LastLoginBuffer(JdbcTemplate jdbcTemplate,
+                           @Value("${user.last-login.flush-ms:5000}") long flushMs,
+                           @Value("${user.last-login.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushMs = flushMs;
+        this.batchSize = batchSize;
+
+        this.worker = new Thread(this::run, "last-login-flusher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Note that a user logged in now; written on the next flush
+     */
+    public void record(UUID userId) {
+        Instant now = Instant.now();
+        pending.merge(userId, now, (old, latest) -> latest.isAfter(old) ? latest : old);
+    }
+
+    /**
+     * Write every buffered login time
+     *
+     * @return Number of users written
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<UUID, Instant>> drained = new ArrayList<>();
+        for (Map.Entry<UUID, Instant> entry : pending.entrySet()) {
+            drained.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        // Same row order on every instance, so concurrent flushes cannot deadlock
+        drained.sort(Map.Entry.comparingByKey());
+
+        int written = 0;
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<Map.Entry<UUID, Instant>> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            write(batch);
+            // Keep anything recorded since the snapshot for the next flush
+            for (Map.Entry<UUID, Instant> entry : batch) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            written += batch.size();
+        }
+        return written;
+    }
+
+    private void write(List<Map.Entry<UUID, Instant>> batch) {
+        StringBuilder sql = new StringBuilder(UPDATE_PREFIX);
+        Object[] params = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?::uuid, ?::timestamptz)");
+            params[i * 2] = batch.get(i).getKey();
+            params[i * 2 + 1] = Timestamp.from(batch.get(i).getValue());
+        }
+        sql.append(UPDATE_SUFFIX);
+        jdbcTemplate.update(sql.toString(), params);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(flushMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                int written = flush();
+                if (written > 0) {
+                    log.debug("Flushed last_login for {} users", written);
+                }
+            } catch (Exception e) {
+                // Entries stay buffered and go out with the next flush
+                log.warn("Could not flush last_login updates: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(2000);
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Could not flush last_login updates on shutdown: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package es204.user_service.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line import of a realm export at startup, e.g.
+ * java -jar user_service.jar --user.import.file=keycloak-init/ESg204-realm.json
+ * Does nothing unless user.import.file is set.
+ */
+@Component
+public class RealmImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RealmImportRunner.class);
+
+    private final RealmImportService realmImportService;
+    private final String file;
+
+    public RealmImportRunner(RealmImportService realmImportService,
+                             @Value("${user.import.file:}") String file) {
+        this.realmImportService = realmImportService;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (file.isBlank()) {
+            return;
+        }
+        log.info("Importing Keycloak realm export {}", file);
+        try (InputStream in = Files.newInputStream(Path.of(file))) {
+            RealmImportService.ImportResult result = realmImportService.importRealm(in);
+            log.info("Imported {} users from {} ({} skipped, {} failed batches)",
+                    result.users(), file, result.skipped(), result.failedBatches());
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package es204.user_service.sync;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Imports the users of a Keycloak realm export (scripts/export-keycloak.sh) into
+ * "Users" and the role tables, so nobody has to wait for a first-login sync.
+ *
+ * The export is read with a streaming parser and only user.import.batch-size users
+ * are held at a time, whatever the size of the file. Each batch is one transaction
+ * with two statements: an unnest() upsert of the users and the same role membership
+ * statement UserSyncService uses. Rows are written the way a login would write them
+ * (a username held by another keycloak_id is taken over), except that last_login
+ * stays empty. Service accounts, users without a username or whose id is not a UUID,
+ * and repeats of an id or username already in the batch are skipped. A batch that
+ * fails (e.g. a username taken by a concurrent login) is rolled back, counted as
+ * failed and skipped; the import goes on with the next batch.
+ */
+@Service
+public class RealmImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(RealmImportService.class);
+
+    /**
+     * Upsert one batch of users and return the "Users".id of every row written or
+     * already up to date. Users whose name is held by another keycloak_id take that
+     * row over (as CLAIM_BY_NAME_SQL does on login) unless their keycloak_id already
+     * has a row of its own; those are left out and reported as skipped. Rows taken
+     * over come back with claimed = true, since their old keycloak_id may be cached.
+     */
+    private static final String UPSERT_USERS_SQL = """
+        WITH input AS (
+            SELECT * FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[])
+                AS t(keycloak_id, email, name, first_name, last_name)
+        ),
+        claimed AS (
+            UPDATE "Users" u
+            SET keycloak_id = i.keycloak_id, first_name = i.first_name, last_name = i.last_name
+            FROM input i
+            WHERE u.name = i.name
+              AND u.keycloak_id IS DISTINCT FROM i.keycloak_id
+              AND NOT EXISTS (SELECT 1 FROM "Users" k WHERE k.keycloak_id = i.keycloak_id)
+            RETURNING u.id, u.keycloak_id
+        ),
+        upserted AS (
+            INSERT INTO "Users" (keycloak_id, email, name, first_name, last_name, last_login)
+            SELECT i.keycloak_id, i.email, i.name, i.first_name, i.last_name, NULL
+            FROM input i
+            WHERE NOT EXISTS (
+                SELECT 1 FROM "Users" n WHERE n.name = i.name AND n.keycloak_id IS DISTINCT FROM i.keycloak_id
+            )
+            ON CONFLICT (keycloak_id) DO UPDATE
+                SET first_name = EXCLUDED.first_name,
+                    last_name = EXCLUDED.last_name
+                WHERE "Users".first_name IS DISTINCT FROM EXCLUDED.first_name
+                   OR "Users".last_name IS DISTINCT FROM EXCLUDED.last_name
+            RETURNING id, keycloak_id
+        )
+        SELECT id, keycloak_id, true AS claimed FROM claimed
+        UNION
+        SELECT id, keycloak_id, false FROM upserted
+        UNION
+        SELECT u.id, u.keycloak_id, false FROM "Users" u JOIN input i ON i.keycloak_id = u.keycloak_id
+        """;
+
+    /**
+     * The fields of a realm export user the import reads
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RealmUser(String id, String username, String email, String firstName, String lastName,
+                     List<String> realmRoles, String serviceAccountClientId) {}
+
+    /**
+     * @param users Users written or already up to date
+     * @param skipped Users left out (service accounts, bad ids, usernames held by another
+     *                user, users of failed batches)
+     * @param failedBatches Batches rolled back because a statement failed
+     * @param roleMemberships Role rows added per role table
+     */
+    public record ImportResult(int users, int skipped, int failedBatches, Map<String, Integer> roleMemberships) {}
+
+    private record Batch(List<UUID> keycloakIds, List<String> emails, List<String> names,
+                         List<String> firstNames, List<String> lastNames, List<List<String>> roles) {
+
+        Batch() {
+            this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                    new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+
+        int size() {
+            return keycloakIds.size();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final UserSyncService userSyncService;
+    private final UserIdCache userIdCache;
+    private final int batchSize;
+
+    public RealmImportService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              UserSyncService userSyncService,
+                              UserIdCache userIdCache,
+                              @Value("${user.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.userSyncService = userSyncService;
+        this.userIdCache = userIdCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import every user of a realm export
+     *
+     * @param in The export JSON (a realm file or a users file, both have a top-level "users" array)
+     * @return What was written
+     * @throws IllegalArgumentException if the input is not a JSON object
+     */
+    public ImportResult importRealm(InputStream in) throws IOException {
+        // Users, skipped, failed batches
+        int[] totals = new int[3];
+        Map<String, Integer> roleMemberships = new LinkedHashMap<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Not a Keycloak realm export");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"users".equals(field) || value != JsonToken.START_ARRAY) {
+                    // Clients, roles, groups, ... are not read
+                    parser.skipChildren();
+                    continue;
+                }
+
+                Map<UUID, RealmUser> pending = new LinkedHashMap<>();
+                Set<String> pendingNames = new HashSet<>();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    RealmUser user = objectMapper.readValue(parser, RealmUser.class);
+                    UUID keycloakId = parseId(user);
+                    if (keycloakId == null) {
+                        totals[1]++;
+                        continue;
+                    }
+                    // A repeated id would make the upsert touch its row twice, and a repeated
+                    // username would fail the whole batch on users_name_key; the first one wins
+                    if (pending.containsKey(keycloakId) || !pendingNames.add(user.username())) {
+                        log.warn("Skipping realm user {} ({}): already in this batch", user.username(), keycloakId);
+                        totals[1]++;
+                        continue;
+                    }
+                    pending.put(keycloakId, user);
+                    if (pending.size() >= batchSize) {
+                        writeBatch(pending, totals, roleMemberships);
+                        pending.clear();
+                        pendingNames.clear();
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    writeBatch(pending, totals, roleMemberships);
+                }
+            }
+        }
+
+        log.info("Realm import finished: {} users, {} skipped, {} failed batches, role rows added {}",
+                totals[0], totals[1], totals[2], roleMemberships);
+        return new ImportResult(totals[0], totals[1], totals[2], roleMemberships);
+    }
+
+    private static UUID parseId(RealmUser user) {
+        if (user.serviceAccountClientId() != null || user.id() == null || user.username() == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(user.id());
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping realm user {} with non-UUID id {}", user.username(), user.id());
+            return null;
+        }
+    }
+
+    private void writeBatch(Map<UUID, RealmUser> pending, int[] totals, Map<String, Integer> roleMemberships) {
+        Batch batch = new Batch();
+        for (Map.Entry<UUID, RealmUser> entry : pending.entrySet()) {
+            RealmUser user = entry.getValue();
+            batch.keycloakIds().add(entry.getKey());
+            batch.emails().add(user.email());
+            batch.names().add(user.username());
+            batch.firstNames().add(user.firstName());
+            batch.lastNames().add(user.lastName());
+            batch.roles().add(user.realmRoles() != null ? user.realmRoles() : List.of());
+        }
+
+        Map<UUID, UUID> userIds = new HashMap<>();
+        List<UUID> claimed = new ArrayList<>();
+        Map<String, Integer> added;
+        try {
+            added = transactionTemplate.execute(status -> {
+                jdbcTemplate.query(UPSERT_USERS_SQL, (RowCallbackHandler) rs -> {
+                            UUID userId = rs.getObject("id", UUID.class);
+                            userIds.put(rs.getObject("keycloak_id", UUID.class), userId);
+                            if (rs.getBoolean("claimed")) {
+                                claimed.add(userId);
+                            }
+                        },
+                        batch.keycloakIds().toArray(UUID[]::new),
+                        batch.emails().toArray(String[]::new),
+                        batch.names().toArray(String[]::new),
+                        batch.firstNames().toArray(String[]::new),
+                        batch.lastNames().toArray(String[]::new));
+
+                List<UUID> memberIds = new ArrayList<>();
+                List<String> memberTables = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    UUID userId = userIds.get(batch.keycloakIds().get(i));
+                    if (userId == null) {
+                        continue;
+                    }
+                    for (String role : batch.roles().get(i)) {
+                        // Built-in roles such as default-roles-esg204 have no table
+                        String table = UserSyncService.roleTable(role);
+                        if (table != null) {
+                            memberIds.add(userId);
+                            memberTables.add(table);
+                        }
+                    }
+                }
+                if (memberIds.isEmpty()) {
+                    return Map.<String, Integer>of();
+                }
+                return userSyncService.addRoleMemberships(memberIds, memberTables);
+            });
+        } catch (DataAccessException e) {
+            // Rolled back, so nothing of this batch was written
+            log.error("Realm import batch of {} users failed, skipping it: {}", batch.size(), e.getMessage());
+            totals[1] += batch.size();
+            totals[2]++;
+            return;
+        }
+
+        // Rows taken over by username no longer belong to their old keycloak_id
+        userIdCache.evictUsers(claimed);
+
+        // Counted once the batch is committed
+        totals[0] += userIds.size();
+        totals[1] += batch.size() - userIds.size();
+        added.forEach((table, rows) -> roleMemberships.merge(table, rows, Integer::sum));
+
+        log.debug("Imported batch of {} realm users", batch.size());
+    }
+}
@@ -0,0 +1,149 @@
+package es204.user_service.sync;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * keycloak_id → "Users".id lookups for services that only know the JWT sub.
+ *
+ * Mappings are kept in a bounded LRU of user.id-cache.max-entries users. A row moves
+ * to another keycloak_id when a login or a realm import takes it over by username;
+ * both drop the row's old mapping once they have written it, and entries also expire
+ * after user.id-cache.ttl-seconds in case a row is moved some other way. Syncs add
+ * the users they write. Everything a lookup misses is read with one
+ * keycloak_id = ANY(?) query on the unique index; a lookup that overlapped an
+ * eviction returns what it read but does not cache it. Unknown ids are not cached,
+ * so a user shows up as soon as their first login has synced them. Hits and misses
+ * are exported as the user.id.cache counter.
+ */
+@Component
+public class UserIdCache {
+
+    private static final String SELECT_USER_IDS = """
+        SELECT keycloak_id, id
+        FROM "Users"
+        WHERE keycloak_id = ANY(?)
+        """;
+
+    private record Entry(UUID userId, long expiresAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Bumped on every eviction; rows loaded before one are not cached
+    private long evictions = 0;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserIdCache(JdbcTemplate jdbcTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${user.id-cache.max-entries:50000}") int maxEntries,
+                       @Value("${user.id-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.hits = meterRegistry.counter("user.id.cache", "result", "hit");
+        this.misses = meterRegistry.counter("user.id.cache", "result", "miss");
+    }
+
+    /**
+     * @param keycloakIds The keycloak_ids to look up
+     * @return "Users".id of every keycloak_id that has a user; unknown ones are absent
+     */
+    public Map<UUID, UUID> resolve(Collection<UUID> keycloakIds) {
+        Map<UUID, UUID> resolved = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        long stamp;
+        synchronized (this) {
+            stamp = evictions;
+            long now = System.currentTimeMillis();
+            for (UUID keycloakId : keycloakIds) {
+                Entry entry = entries.get(keycloakId);
+                if (entry != null && entry.expiresAt() >= now) {
+                    resolved.put(keycloakId, entry.userId());
+                } else {
+                    if (entry != null) {
+                        entries.remove(keycloakId);
+                    }
+                    missing.add(keycloakId);
+                }
+            }
+        }
+        hits.increment(keycloakIds.size() - missing.size());
+        misses.increment(missing.size());
+
+        if (!missing.isEmpty()) {
+            Map<UUID, UUID> loaded = new HashMap<>();
+            jdbcTemplate.query(SELECT_USER_IDS, (RowCallbackHandler) rs ->
+                            loaded.put(rs.getObject("keycloak_id", UUID.class), rs.getObject("id", UUID.class)),
+                    (Object) missing.toArray(UUID[]::new));
+            synchronized (this) {
+                // An eviction ran while loading, so a row may already have moved
+                if (evictions == stamp) {
+                    loaded.forEach(this::put);
+                }
+            }
+            resolved.putAll(loaded);
+        }
+        return resolved;
+    }
+
+    /**
+     * @return "Users".id for one keycloak_id, or null if no user has it
+     */
+    public UUID resolve(UUID keycloakId) {
+        return resolve(List.of(keycloakId)).get(keycloakId);
+    }
+
+    /**
+     * Remember a mapping written elsewhere (e.g. by a sync)
+     */
+    public synchronized void put(UUID keycloakId, UUID userId) {
+        entries.put(keycloakId, new Entry(userId, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<UUID, Entry>> lru = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+        }
+    }
+
+    /**
+     * Forget every keycloak_id mapped to a row (call after the row moved to another keycloak_id)
+     */
+    public void evictUser(UUID userId) {
+        evictUsers(Set.of(userId));
+    }
+
+    /**
+     * Forget every keycloak_id mapped to any of the rows
+     */
+    public synchronized void evictUsers(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        evictions++;
+        Set<UUID> evicted = new HashSet<>(userIds);
+        entries.values().removeIf(entry -> evicted.contains(entry.userId()));
+    }
+}
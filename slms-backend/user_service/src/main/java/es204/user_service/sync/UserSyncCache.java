@@ -0,0 +1,96 @@
+package es204.user_service.sync;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Remembers which users UserSyncFilter has already synced, and with which claims.
+ *
+ * An entry is keyed by keycloak ID and holds the user's ID and a hash of the claims
+ * the sync wrote (email, username, names, app roles). While it is fresh and the token
+ * carries the same claims, the filter skips the sync and only records the login with
+ * the cached user ID; a changed claim or an expired entry (user.sync.cache.ttl-seconds)
+ * triggers a full sync again. Bounded LRU of
+ * user.sync.cache.max-entries users. Hits and misses are exported as the
+ * user.sync.cache counter.
+ */
+@Component
+public class UserSyncCache {
+
+    private record Entry(UUID userId, int claimsHash, long expiresAt) {}
+
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserSyncCache(MeterRegistry meterRegistry,
+                         @Value("${user.sync.cache.ttl-seconds:300}") long ttlSeconds,
+                         @Value("${user.sync.cache.max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("user.sync.cache", "result", "hit");
+        this.misses = meterRegistry.counter("user.sync.cache", "result", "miss");
+    }
+
+    /**
+     * Hash of everything a sync writes; roles are order-independent
+     */
+    public static int claimsHash(String email, String preferredUsername, String firstName, String lastName,
+                                 List<String> roles) {
+        int rolesHash = 0;
+        if (roles != null) {
+            for (String role : roles) {
+                rolesHash += Objects.hashCode(role);
+            }
+        }
+        return Objects.hash(email, preferredUsername, firstName, lastName, rolesHash);
+    }
+
+    /**
+     * @return The user's ID if they were synced with these claims within the TTL, null otherwise
+     */
+    public UUID freshUserId(UUID keycloakId, int claimsHash) {
+        UUID userId = lookup(keycloakId, claimsHash);
+        (userId != null ? hits : misses).increment();
+        return userId;
+    }
+
+    /**
+     * Record a successful sync
+     */
+    public synchronized void markSynced(UUID keycloakId, int claimsHash, UUID userId) {
+        entries.put(keycloakId, new Entry(userId, claimsHash, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<UUID, Entry>> lru = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+        }
+    }
+
+    private synchronized UUID lookup(UUID keycloakId, int claimsHash) {
+        Entry entry = entries.get(keycloakId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(keycloakId);
+            return null;
+        }
+        return entry.claimsHash() == claimsHash ? entry.userId() : null;
+    }
+}
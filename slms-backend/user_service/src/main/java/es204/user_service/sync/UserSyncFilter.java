@@ -2,6 +2,7 @@ package es204.user_service.sync;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
+import es204.user_service.model.UserDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
@@ -17,7 +18,9 @@ import java.util.UUID;
 
 /**
  * Filter to automatically sync authenticated Keycloak users with PostgreSQL
- * Runs on every authenticated request to ensure user exists in database
+ * Runs on every authenticated request to ensure user exists in database;
+ * users synced recently with the same claims only have their login recorded
+ * (see UserSyncCache)
  */
 @Component
 public class UserSyncFilter implements Filter {
@@ -25,9 +28,14 @@ public class UserSyncFilter implements Filter {
     private static final Logger log = LoggerFactory.getLogger(UserSyncFilter.class);
 
     private final UserSyncService userSyncService;
+    private final UserSyncCache userSyncCache;
+    private final LastLoginBuffer lastLoginBuffer;
 
-    public UserSyncFilter(UserSyncService userSyncService) {
+    public UserSyncFilter(UserSyncService userSyncService, UserSyncCache userSyncCache,
+                          LastLoginBuffer lastLoginBuffer) {
         this.userSyncService = userSyncService;
+        this.userSyncCache = userSyncCache;
+        this.lastLoginBuffer = lastLoginBuffer;
     }
 
     @Override
@@ -57,13 +65,23 @@ public class UserSyncFilter implements Filter {
                 
                 if (sub != null) {
                     UUID keycloakId = UUID.fromString(sub);
+                    int claimsHash = UserSyncCache.claimsHash(email, preferredUsername, givenName, familyName, roles);
                     
-                    // Sync user to Supabase (create if not exists, update last_login if exists)
-                    // Also sync to role-specific table (Costumer, Driver, etc.)
-                    userSyncService.syncUser(keycloakId, email, preferredUsername, givenName, familyName, roles);
-                    
-                    log.debug("User synced: keycloak_id={}, email={}, name={} {} {}, roles={}", 
-                        keycloakId, email, preferredUsername, givenName, familyName, roles);
+                    UUID userId = userSyncCache.freshUserId(keycloakId, claimsHash);
+                    if (userId != null) {
+                        // Already synced with these claims recently: only last_login to update
+                        lastLoginBuffer.record(userId);
+                    } else {
+                        // Sync user to Supabase (create if not exists, update last_login if exists)
+                        // Also sync to role-specific table (Costumer, Driver, etc.)
+                        UserDTO syncedUser = userSyncService.syncUser(keycloakId, email, preferredUsername, givenName, familyName, roles);
+                        if (syncedUser != null) {
+                            userSyncCache.markSynced(keycloakId, claimsHash, syncedUser.getId());
+                        }
+                        
+                        log.debug("User synced: keycloak_id={}, email={}, name={} {} {}, roles={}", 
+                            keycloakId, email, preferredUsername, givenName, familyName, roles);
+                    }
                 }
             } catch (Exception e) {
                 // Log error but don't block request
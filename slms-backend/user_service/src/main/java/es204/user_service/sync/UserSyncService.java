@@ -4,12 +4,18 @@ import es204.user_service.model.UserDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -20,13 +26,98 @@ public class UserSyncService {
 
     private static final Logger log = LoggerFactory.getLogger(UserSyncService.class);
 
+    // LISTENed to by the order service's RoleDirectory
+    private static final String ROLE_MEMBERSHIP_CHANNEL = "role_membership_changed";
+
+    /**
+     * Create-or-refresh a user in one statement. A new keycloak_id inserts; a known one
+     * only rewrites the names when they changed. When nothing changed the upsert returns
+     * no row, so the UNION ALL branch returns the existing one instead (last_login is
+     * handled by LastLoginBuffer).
+     */
+    private static final String UPSERT_USER_SQL = """
+        WITH upserted AS (
+            INSERT INTO "Users" (id, keycloak_id, email, name, first_name, last_name, last_login)
+            VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+            ON CONFLICT (keycloak_id) DO UPDATE
+                SET first_name = EXCLUDED.first_name,
+                    last_name = EXCLUDED.last_name
+                WHERE "Users".first_name IS DISTINCT FROM EXCLUDED.first_name
+                   OR "Users".last_name IS DISTINCT FROM EXCLUDED.last_name
+            RETURNING *
+        )
+        SELECT * FROM upserted
+        UNION ALL
+        SELECT * FROM "Users" WHERE keycloak_id = ? AND NOT EXISTS (SELECT 1 FROM upserted)
+        """;
+
+    /**
+     * A user created before Keycloak (or recreated there) already has the username under
+     * another keycloak_id: take the row over
+     */
+    private static final String CLAIM_BY_NAME_SQL = """
+        UPDATE "Users"
+        SET keycloak_id = ?, first_name = ?, last_name = ?
+        WHERE name = ?
+        RETURNING *
+        """;
+
+    /**
+     * Insert every missing role row for a list of (user, role table) pairs in one
+     * statement and signal each table that gained rows on the role membership channel;
+     * returns one row per such table with the number of rows added
+     */
+    private static final String ADD_ROLE_MEMBERSHIPS_SQL = """
+        WITH p AS (
+            SELECT DISTINCT user_id, role_table
+            FROM unnest(?::uuid[], ?::text[]) AS t(user_id, role_table)
+        ),
+        driver AS (
+            INSERT INTO "Driver" (user_id) SELECT user_id FROM p WHERE role_table = 'Driver'
+            ON CONFLICT (user_id) DO NOTHING RETURNING 'Driver'::text AS role_table
+        ),
+        costumer AS (
+            INSERT INTO "Costumer" (user_id) SELECT user_id FROM p WHERE role_table = 'Costumer'
+            ON CONFLICT (user_id) DO NOTHING RETURNING 'Costumer'::text AS role_table
+        ),
+        csr AS (
+            INSERT INTO "Csr" (user_id) SELECT user_id FROM p WHERE role_table = 'Csr'
+            ON CONFLICT (user_id) DO NOTHING RETURNING 'Csr'::text AS role_table
+        ),
+        logistics_manager AS (
+            INSERT INTO "LogisticsManager" (user_id) SELECT user_id FROM p WHERE role_table = 'LogisticsManager'
+            ON CONFLICT (user_id) DO NOTHING RETURNING 'LogisticsManager'::text AS role_table
+        ),
+        warehouse_staff AS (
+            INSERT INTO "WarehouseStaff" (user_id) SELECT user_id FROM p WHERE role_table = 'WarehouseStaff'
+            ON CONFLICT (user_id) DO NOTHING RETURNING 'WarehouseStaff'::text AS role_table
+        ),
+        added AS (
+            SELECT role_table FROM driver
+            UNION ALL SELECT role_table FROM costumer
+            UNION ALL SELECT role_table FROM csr
+            UNION ALL SELECT role_table FROM logistics_manager
+            UNION ALL SELECT role_table FROM warehouse_staff
+        )
+        SELECT role_table, COUNT(*) AS added, pg_notify(?, role_table)
+        FROM added
+        GROUP BY role_table
+        """;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private LastLoginBuffer lastLoginBuffer;
+
+    @Autowired
+    private UserIdCache userIdCache;
+
     /**
      * Sync user from Keycloak JWT claims to PostgreSQL
-     * Creates user if not exists, updates last_login if exists
-     * Also creates entry in role-specific table (Customer, Driver, etc.)
+     * Creates user if not exists, refreshes names if exists (one upsert),
+     * then creates any missing entries in role-specific tables (Costumer, Driver, etc.)
+     * with a second statement. Concurrent first logins of the same user converge on one row.
      * 
      * @param keycloakId The Keycloak user ID (from JWT 'sub' claim)
      * @param email User email (from JWT 'email' claim)
@@ -41,51 +132,18 @@ public class UserSyncService {
             keycloakId, email, preferredUsername, firstName, lastName, roles);
 
         try {
-            // Try to find user by keycloak_id first
-            UserDTO existingUser = findUserByKeycloakId(keycloakId);
-
-            // If not found by keycloak_id, try to find by name (preferred_username)
-            if (existingUser == null && preferredUsername != null) {
-                log.info("User not found by keycloak_id, trying to find by name: {}", preferredUsername);
-                existingUser = findUserByName(preferredUsername);
-                
-                // If found by name but different keycloak_id, update the keycloak_id
-                if (existingUser != null && !keycloakId.equals(existingUser.getKeycloakId())) {
-                    log.warn("User found by name '{}' but with different keycloak_id. Updating keycloak_id from {} to {}", 
-                             preferredUsername, existingUser.getKeycloakId(), keycloakId);
-                    updateKeycloakId(existingUser.getId(), keycloakId);
-                    existingUser.setKeycloakId(keycloakId);
-                }
-            }
-
-            UserDTO syncedUser;
-            if (existingUser != null) {
-                // User exists, update last_login and name fields
-                log.info("User exists with id: {}, updating last_login and name fields", existingUser.getId());
-                UserDTO updated = updateUserInfo(existingUser.getId(), firstName, lastName);
-                if (updated != null) {
-                    log.info("Successfully updated user info for: {}", existingUser.getId());
-                    syncedUser = updated;
-                } else {
-                    log.warn("Failed to update user info, returning existing user data");
-                    syncedUser = existingUser;
-                }
-            } else {
-                // User doesn't exist, create new
-                log.info("User with keycloak_id {} and name {} not found, creating new user", keycloakId, preferredUsername);
-                UserDTO created = createUser(keycloakId, email, preferredUsername, firstName, lastName);
-                if (created != null) {
-                    log.info("Successfully created user with id: {}", created.getId());
-                    syncedUser = created;
-                } else {
-                    log.error("Failed to create user");
-                    return null;
-                }
+            UserDTO syncedUser = upsertUser(keycloakId, email, preferredUsername, firstName, lastName);
+            if (syncedUser == null) {
+                log.error("Failed to sync user with keycloak_id {}", keycloakId);
+                return null;
             }
+            lastLoginBuffer.record(syncedUser.getId());
+            // The buffered value, not yet flushed
+            syncedUser.setLastLogin(Instant.now());
 
-            // Sync user to role-specific table
-            if (syncedUser != null && roles != null && !roles.isEmpty()) {
-                syncUserToRoleTable(syncedUser.getId(), roles);
+            // Sync user to role-specific tables
+            if (roles != null && !roles.isEmpty()) {
+                syncUserToRoleTables(syncedUser.getId(), roles);
             }
 
             return syncedUser;
@@ -96,118 +154,47 @@ public class UserSyncService {
     }
 
     /**
-     * Find user by Keycloak ID using PostgreSQL
-     */
-    private UserDTO findUserByKeycloakId(UUID keycloakId) {
-        try {
-            String sql = "SELECT * FROM \"Users\" WHERE keycloak_id = ?";
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, keycloakId);
-            
-            if (!rows.isEmpty()) {
-                Map<String, Object> row = rows.get(0);
-                return mapRowToUserDTO(row);
-            }
-            
-            return null;
-        } catch (Exception e) {
-            log.error("Error finding user by keycloak_id {}: {}", keycloakId, e.getMessage());
-            // Return null instead of throwing exception to prevent service startup failure
-            return null;
-        }
-    }
-
-    /**
-     * Find user by username using PostgreSQL
+     * Insert or refresh the "Users" row for a keycloak_id
      */
-    private UserDTO findUserByName(String name) {
+    private UserDTO upsertUser(UUID keycloakId, String email, String name, String firstName, String lastName) {
+        List<Map<String, Object>> rows;
         try {
-            String sql = "SELECT * FROM \"Users\" WHERE name = ?";
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, name);
-            
+            rows = jdbcTemplate.queryForList(UPSERT_USER_SQL,
+                    UUID.randomUUID(), keycloakId, email, name, firstName, lastName, keycloakId);
+        } catch (DuplicateKeyException e) {
+            // Not our keycloak_id, so the username is taken by an older row
+            log.warn("User name '{}' already exists with a different keycloak_id. Updating keycloak_id to {}", name, keycloakId);
+            rows = jdbcTemplate.queryForList(CLAIM_BY_NAME_SQL, keycloakId, firstName, lastName, name);
             if (!rows.isEmpty()) {
-                Map<String, Object> row = rows.get(0);
-                return mapRowToUserDTO(row);
-            }
-            
-            return null;
-        } catch (Exception e) {
-            log.error("Error finding user by name {}: {}", name, e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * Update keycloak_id for existing user
-     */
-    private void updateKeycloakId(UUID userId, UUID newKeycloakId) {
-        try {
-            String sql = "UPDATE \"Users\" SET keycloak_id = ? WHERE id = ?";
-            int updated = jdbcTemplate.update(sql, newKeycloakId, userId);
-            if (updated > 0) {
-                log.info("Updated keycloak_id for user {} to {}", userId, newKeycloakId);
-            }
-        } catch (Exception e) {
-            log.error("Error updating keycloak_id for user {}: {}", userId, e.getMessage());
-        }
-    }
-
-    /**
-     * Update user information
-     */
-    private UserDTO updateUserInfo(UUID userId, String firstName, String lastName) {
-        try {
-            String sql = "UPDATE \"Users\" SET first_name = ?, last_name = ?, last_login = CURRENT_TIMESTAMP WHERE id = ?";
-            int updated = jdbcTemplate.update(sql, firstName, lastName, userId);
-            
-            if (updated > 0) {
-                return findUserById(userId);
-            } else {
-                log.warn("No rows updated for user: {}", userId);
-                return null;
+                userIdCache.evictUser((UUID) rows.get(0).get("id"));
             }
-        } catch (Exception e) {
-            log.error("Error updating user info for {}: {}", userId, e.getMessage());
-            return null;
         }
-    }
 
-    /**
-     * Create new user
-     */
-    private UserDTO createUser(UUID keycloakId, String email, String name, String firstName, String lastName) {
-        try {
-            UUID newUserId = UUID.randomUUID();
-            String sql = "INSERT INTO \"Users\" (id, keycloak_id, email, name, first_name, last_name, created_at, last_login) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
-            
-            int inserted = jdbcTemplate.update(sql, newUserId, keycloakId, email, name, firstName, lastName);
-            
-            if (inserted > 0) {
-                return findUserById(newUserId);
-            } else {
-                log.error("Failed to insert user");
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Error creating user: {}", e.getMessage());
-            return null;
+        // A concurrent first login inserted the row after this statement's snapshot
+        UserDTO user = !rows.isEmpty() ? mapRowToUserDTO(rows.get(0)) : findUserByKeycloakId(keycloakId);
+        if (user != null) {
+            userIdCache.put(keycloakId, user.getId());
         }
+        return user;
     }
 
     /**
-     * Find user by ID
+     * Find user by Keycloak ID using PostgreSQL
      */
-    private UserDTO findUserById(UUID userId) {
+    private UserDTO findUserByKeycloakId(UUID keycloakId) {
         try {
-            String sql = "SELECT * FROM \"Users\" WHERE id = ?";
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, userId);
+            String sql = "SELECT * FROM \"Users\" WHERE keycloak_id = ?";
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, keycloakId);
             
             if (!rows.isEmpty()) {
-                return mapRowToUserDTO(rows.get(0));
+                Map<String, Object> row = rows.get(0);
+                return mapRowToUserDTO(row);
             }
             
             return null;
         } catch (Exception e) {
-            log.error("Error finding user by id {}: {}", userId, e.getMessage());
+            log.error("Error finding user by keycloak_id {}: {}", keycloakId, e.getMessage());
+            // Return null instead of throwing exception to prevent service startup failure
             return null;
         }
     }
@@ -239,108 +226,69 @@ public class UserSyncService {
 
     /**
      * Sync user to role-specific tables
+     * Services caching role members (e.g. the order service) are signalled for each table that changed
      */
-    private void syncUserToRoleTable(UUID userId, List<String> roles) {
+    private void syncUserToRoleTables(UUID userId, List<String> roles) {
+        Set<String> tables = new LinkedHashSet<>();
         for (String role : roles) {
-            try {
-                switch (role.toLowerCase()) {
-                    case "driver":
-                        syncToDriverTable(userId);
-                        break;
-                    case "costumer":
-                    case "customer":
-                        syncToCostumerTable(userId);
-                        break;
-                    case "csr":
-                        syncToCsrTable(userId);
-                        break;
-                    case "logisticsmanager":
-                        syncToLogisticsManagerTable(userId);
-                        break;
-                    case "warehousestaff":
-                        syncToWarehouseStaffTable(userId);
-                        break;
-                    default:
-                        log.warn("Unknown role: {}", role);
-                }
-            } catch (Exception e) {
-                log.error("Error syncing user {} to role table {}: {}", userId, role, e.getMessage());
+            String table = roleTable(role);
+            if (table != null) {
+                tables.add(table);
+            } else {
+                log.warn("Unknown role: {}", role);
             }
         }
-    }
-
-    private void syncToDriverTable(UUID userId) {
-        try {
-            String checkSql = "SELECT COUNT(*) FROM \"Driver\" WHERE user_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId);
-            
-            if (count != null && count == 0) {
-                String insertSql = "INSERT INTO \"Driver\" (user_id) VALUES (?)";
-                jdbcTemplate.update(insertSql, userId);
-                log.info("Created Driver entry for user {}", userId);
-            }
-        } catch (Exception e) {
-            log.error("Error syncing to Driver table for user {}: {}", userId, e.getMessage());
+        if (tables.isEmpty()) {
+            return;
         }
-    }
 
-    private void syncToCostumerTable(UUID userId) {
         try {
-            String checkSql = "SELECT COUNT(*) FROM \"Costumer\" WHERE user_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId);
-            
-            if (count != null && count == 0) {
-                String insertSql = "INSERT INTO \"Costumer\" (user_id) VALUES (?)";
-                jdbcTemplate.update(insertSql, userId);
-                log.info("Created Costumer entry for user {}", userId);
+            List<UUID> userIds = new ArrayList<>();
+            for (int i = 0; i < tables.size(); i++) {
+                userIds.add(userId);
             }
-        } catch (Exception e) {
-            log.error("Error syncing to Costumer table for user {}: {}", userId, e.getMessage());
-        }
-    }
-
-    private void syncToCsrTable(UUID userId) {
-        try {
-            String checkSql = "SELECT COUNT(*) FROM \"Csr\" WHERE user_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId);
-            
-            if (count != null && count == 0) {
-                String insertSql = "INSERT INTO \"Csr\" (user_id) VALUES (?)";
-                jdbcTemplate.update(insertSql, userId);
-                log.info("Created Csr entry for user {}", userId);
+            Map<String, Integer> added = addRoleMemberships(userIds, new ArrayList<>(tables));
+            for (String table : added.keySet()) {
+                log.info("Created {} entry for user {}", table, userId);
             }
         } catch (Exception e) {
-            log.error("Error syncing to Csr table for user {}: {}", userId, e.getMessage());
+            log.error("Error syncing user {} to role tables {}: {}", userId, tables, e.getMessage());
         }
     }
 
-    private void syncToLogisticsManagerTable(UUID userId) {
-        try {
-            String checkSql = "SELECT COUNT(*) FROM \"LogisticsManager\" WHERE user_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId);
-            
-            if (count != null && count == 0) {
-                String insertSql = "INSERT INTO \"LogisticsManager\" (user_id) VALUES (?)";
-                jdbcTemplate.update(insertSql, userId);
-                log.info("Created LogisticsManager entry for user {}", userId);
-            }
-        } catch (Exception e) {
-            log.error("Error syncing to LogisticsManager table for user {}: {}", userId, e.getMessage());
-        }
+    /**
+     * Add (user, role table) memberships that do not exist yet, with one statement
+     *
+     * @param userIds "Users".id of each pair
+     * @param tables Role table of each pair (see roleTable)
+     * @return Rows added per role table; tables that gained nothing are absent
+     */
+    Map<String, Integer> addRoleMemberships(List<UUID> userIds, List<String> tables) {
+        Map<String, Integer> added = new LinkedHashMap<>();
+        jdbcTemplate.query(ADD_ROLE_MEMBERSHIPS_SQL, (RowCallbackHandler) rs ->
+                        added.put(rs.getString("role_table"), rs.getInt("added")),
+                userIds.toArray(UUID[]::new), tables.toArray(String[]::new), ROLE_MEMBERSHIP_CHANNEL);
+        return added;
     }
 
-    private void syncToWarehouseStaffTable(UUID userId) {
-        try {
-            String checkSql = "SELECT COUNT(*) FROM \"WarehouseStaff\" WHERE user_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId);
-            
-            if (count != null && count == 0) {
-                String insertSql = "INSERT INTO \"WarehouseStaff\" (user_id) VALUES (?)";
-                jdbcTemplate.update(insertSql, userId);
-                log.info("Created WarehouseStaff entry for user {}", userId);
-            }
-        } catch (Exception e) {
-            log.error("Error syncing to WarehouseStaff table for user {}: {}", userId, e.getMessage());
+    /**
+     * Role table for a Keycloak realm role (e.g. "Warehouse_Staff" → "WarehouseStaff"), or null
+     */
+    static String roleTable(String role) {
+        switch (role.replace("_", "").toLowerCase()) {
+            case "driver":
+                return "Driver";
+            case "costumer":
+            case "customer":
+                return "Costumer";
+            case "csr":
+                return "Csr";
+            case "logisticsmanager":
+                return "LogisticsManager";
+            case "warehousestaff":
+                return "WarehouseStaff";
+            default:
+                return null;
         }
     }
 